@@ -0,0 +1,8 @@
+-- Unique index the OCR crawl job worker (ocr.jobs.enabled) upserts crawled documents on.
+-- Run once per database before enabling the worker; the statement is idempotent.
+-- Table and column must match embedding.job.page-table and ocr.jobs.page-url-column.
+
+-- Fails if the table already holds duplicate URLs; remove those first. A failed CONCURRENTLY build leaves an
+-- INVALID index behind that must be dropped before retrying.
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS page_url_key
+    ON page (url);
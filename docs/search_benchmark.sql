@@ -0,0 +1,53 @@
+-- Compares the three /search queries on a synthetic one-million-row items table.
+-- Run with psql against a scratch database:  psql -f docs/search_benchmark.sql
+-- Record the "Execution Time" of each EXPLAIN ANALYZE below (warm cache, median of several runs)
+-- together with the Postgres version and hardware.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+DROP TABLE IF EXISTS items_search_bench;
+CREATE TABLE items_search_bench (
+    id bigint PRIMARY KEY,
+    title text NOT NULL
+);
+
+INSERT INTO items_search_bench (id, title)
+SELECT g,
+       'item ' || g || ' ' || md5(g::text) || ' '
+           || (ARRAY['red', 'blue', 'green', 'black', 'white'])[1 + g % 5] || ' '
+           || (ARRAY['chair', 'lamp', 'table', 'sofa', 'desk', 'shelf'])[1 + g % 6]
+FROM generate_series(1, 1000000) AS g;
+
+ALTER TABLE items_search_bench
+    ADD COLUMN title_tsv tsvector
+    GENERATED ALWAYS AS (to_tsvector('simple', coalesce(title, ''))) STORED;
+
+-- ILIKE: no usable index, sequential scan.
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT i.id, i.title
+FROM items_search_bench i
+WHERE i.title ILIKE '%green lamp%'
+ORDER BY i.title
+LIMIT 10;
+
+CREATE INDEX items_search_bench_trgm_idx ON items_search_bench USING gin (title gin_trgm_ops);
+CREATE INDEX items_search_bench_tsv_idx ON items_search_bench USING gin (title_tsv);
+ANALYZE items_search_bench;
+
+-- TRIGRAM: bitmap scan on the trigram index.
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT i.id, i.title
+FROM items_search_bench i
+WHERE i.title ILIKE '%green lamp%'
+ORDER BY similarity(i.title, 'green lamp') DESC, i.title
+LIMIT 10;
+
+-- FULL_TEXT: bitmap scan on the tsvector index.
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT i.id, i.title
+FROM items_search_bench i, websearch_to_tsquery('simple'::regconfig, 'green lamp') q
+WHERE i.title_tsv @@ q
+ORDER BY ts_rank_cd(i.title_tsv, q) DESC, i.title
+LIMIT 10;
+
+DROP TABLE items_search_bench;
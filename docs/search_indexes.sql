@@ -0,0 +1,20 @@
+-- Indexes for the /search modes selected with recommendation.search.mode.
+-- Run once per database; every statement is idempotent.
+
+-- TRIGRAM: pg_trgm GIN index. It serves `title ILIKE '%q%'` for queries of three or more
+-- characters and powers similarity() ranking.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS items_title_trgm_idx
+    ON items USING gin (title gin_trgm_ops);
+
+-- FULL_TEXT: stored tsvector column plus GIN index.
+-- The text search configuration here must match recommendation.search.text-search-config.
+ALTER TABLE items
+    ADD COLUMN IF NOT EXISTS title_tsv tsvector
+    GENERATED ALWAYS AS (to_tsvector('simple', coalesce(title, ''))) STORED;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS items_title_tsv_idx
+    ON items USING gin (title_tsv);
+
+ANALYZE items;
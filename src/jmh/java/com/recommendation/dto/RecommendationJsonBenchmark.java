@@ -0,0 +1,53 @@
+package com.recommendation.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing a {@code List<RecommendationDto>} response body with Jackson, as Spring MVC does for the recommendation
+ * endpoints.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class RecommendationJsonBenchmark {
+
+    @Param({"10", "100"})
+    int rows;
+
+    private List<RecommendationDto> recommendations;
+    private ObjectWriter writer;
+
+    @Setup
+    public void setUp() {
+        recommendations = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            recommendations.add(new RecommendationDto(1_000L + i, "Recommended item title " + i, 1.0 / (i + 1)));
+        }
+        ObjectMapper objectMapper = new ObjectMapper();
+        writer = objectMapper.writerFor(
+                objectMapper.getTypeFactory().constructCollectionType(List.class, RecommendationDto.class));
+    }
+
+    @Benchmark
+    public byte[] writeList() throws Exception {
+        return writer.writeValueAsBytes(recommendations);
+    }
+}
@@ -0,0 +1,78 @@
+package com.recommendation.embedding;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializing one embedding for a write. {@code boxedListLiteral} keeps the original path (float[] boxed into a
+ * {@code List<Double>}, then joined into a literal) as the reference for the {@link PgVector} text and binary forms.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class VectorSerializationBenchmark {
+
+    @Param({"384", "768"})
+    int dimension;
+
+    private float[] vector;
+    private String literal;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(11);
+        vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextDouble(-1, 1);
+        }
+        literal = PgVector.toLiteral(vector);
+        binary = new byte[4 + dimension * Float.BYTES];
+    }
+
+    @Benchmark
+    public String boxedListLiteral() {
+        Double[] values = new Double[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            values[i] = (double) vector[i];
+        }
+        StringJoiner joiner = new StringJoiner(",", "[", "]");
+        for (Double value : List.of(values)) {
+            joiner.add(String.valueOf(value));
+        }
+        return joiner.toString();
+    }
+
+    @Benchmark
+    public String textLiteral() {
+        return PgVector.toLiteral(vector);
+    }
+
+    @Benchmark
+    public byte[] binaryFormat() {
+        PgVector.writeBinary(vector, binary, 0);
+        return binary;
+    }
+
+    @Benchmark
+    public float[] parseLiteral() {
+        return PgVector.parse(literal);
+    }
+}
@@ -0,0 +1,51 @@
+package com.recommendation.ocr.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing a crawled HTML page and resolving its links with {@link OcrCrawlerService#extractLinks}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class LinkExtractionBenchmark {
+
+    @Param({"50", "1000"})
+    int links;
+
+    private byte[] page;
+
+    @Setup
+    public void setUp() {
+        StringBuilder html = new StringBuilder("<html><head><title>Index</title></head><body><ul>");
+        for (int i = 0; i < links; i++) {
+            html.append("<li><p>Document ").append(i).append(" with some surrounding text.</p>")
+                    .append("<a href=\"docs/file-").append(i).append(i % 3 == 0 ? ".pdf" : ".png").append("\">file ")
+                    .append(i).append("</a></li>");
+        }
+        page = html.append("</ul></body></html>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<String> extractLinks() throws IOException {
+        return OcrCrawlerService.extractLinks("https://example.com/library/", new ByteArrayInputStream(page), "UTF-8");
+    }
+}
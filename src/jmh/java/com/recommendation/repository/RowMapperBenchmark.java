@@ -0,0 +1,92 @@
+package com.recommendation.repository;
+
+import com.recommendation.dto.RecommendationDto;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Mapping a result page with {@link RecommendationRepository.RecommendationRowMapper}. The {@link ResultSet} is an
+ * in-memory proxy, so only the mapping itself (column lookups by label, boxing, record allocation) is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class RowMapperBenchmark {
+
+    @Param({"10", "100"})
+    int rows;
+
+    private final RowMapper<RecommendationDto> rowMapper = new RecommendationRepository.RecommendationRowMapper();
+    private InMemoryRows data;
+    private ResultSet resultSet;
+
+    @Setup
+    public void setUp() {
+        data = new InMemoryRows(rows);
+        resultSet = data.proxy();
+    }
+
+    @Benchmark
+    public List<RecommendationDto> mapRows() throws SQLException {
+        data.reset();
+        List<RecommendationDto> mapped = new ArrayList<>(rows);
+        int rowNum = 0;
+        while (resultSet.next()) {
+            mapped.add(rowMapper.mapRow(resultSet, rowNum++));
+        }
+        return mapped;
+    }
+
+    private static final class InMemoryRows {
+        private final long[] ids;
+        private final String[] titles;
+        private final double[] scores;
+        private int cursor = -1;
+
+        InMemoryRows(int rows) {
+            ids = new long[rows];
+            titles = new String[rows];
+            scores = new double[rows];
+            for (int i = 0; i < rows; i++) {
+                ids[i] = 1_000 + i;
+                titles[i] = "Recommended item title " + i;
+                scores[i] = 1.0 / (i + 1);
+            }
+        }
+
+        void reset() {
+            cursor = -1;
+        }
+
+        ResultSet proxy() {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "next" -> ++cursor < ids.length;
+                        case "getLong" -> ids[cursor];
+                        case "getString" -> titles[cursor];
+                        case "getDouble" -> scores[cursor];
+                        case "wasNull" -> false;
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.recommendation.rerank;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Scores one query against a re-ranking candidate set, Vector API kernels against plain loops. Run with
+ * {@code ./gradlew jmh}; the default parameters match the target of 1,000 candidates of 768 dimensions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class VectorKernelsBenchmark {
+
+    @Param({"768"})
+    int dimension;
+
+    @Param({"1000"})
+    int candidates;
+
+    @Param({"SIMD", "SCALAR"})
+    String kernel;
+
+    private VectorKernels kernels;
+    private float[] query;
+    private float[][] vectors;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        kernels = kernel.equals("SIMD") ? new SimdVectorKernels() : VectorKernels.scalar();
+        SplittableRandom random = new SplittableRandom(7);
+        query = randomVector(random);
+        vectors = new float[candidates][];
+        for (int i = 0; i < candidates; i++) {
+            vectors[i] = randomVector(random);
+        }
+    }
+
+    @Benchmark
+    public void dot(Blackhole blackhole) {
+        for (float[] vector : vectors) {
+            blackhole.consume(kernels.dot(query, vector));
+        }
+    }
+
+    @Benchmark
+    public void squaredDistance(Blackhole blackhole) {
+        for (float[] vector : vectors) {
+            blackhole.consume(kernels.squaredDistance(query, vector));
+        }
+    }
+
+    @Benchmark
+    public void cosine(Blackhole blackhole) {
+        for (float[] vector : vectors) {
+            blackhole.consume(kernels.cosine(query, vector));
+        }
+    }
+
+    private float[] randomVector(SplittableRandom random) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextDouble(-1, 1);
+        }
+        return vector;
+    }
+}
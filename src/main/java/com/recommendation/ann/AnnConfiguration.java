@@ -0,0 +1,9 @@
+package com.recommendation.ann;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(AnnProperties.class)
+public class AnnConfiguration {
+}
@@ -0,0 +1,47 @@
+package com.recommendation.ann;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the in-process HNSW index over page embeddings. {@code m} and {@code efConstruction} trade build
+ * time and memory for recall, {@code efSearch} is the default candidate list size per query. Once deleted nodes
+ * (replaced or removed pages) exceed {@code maxDeletedRatio} of the live ones, the graph is rebuilt without them.
+ */
+@ConfigurationProperties(prefix = "recommendation.ann")
+public record AnnProperties(
+        boolean enabled,
+        int m,
+        int efConstruction,
+        int efSearch,
+        int loadBatchSize,
+        String snapshotPath,
+        Duration catchUpMargin,
+        double maxDeletedRatio
+) {
+    public AnnProperties {
+        if (m <= 1) {
+            m = 16;
+        }
+        if (efConstruction <= 0) {
+            efConstruction = 200;
+        }
+        if (efSearch <= 0) {
+            efSearch = 100;
+        }
+        if (loadBatchSize <= 0) {
+            loadBatchSize = 1000;
+        }
+        if (catchUpMargin == null) {
+            catchUpMargin = Duration.ofMinutes(5);
+        }
+        if (maxDeletedRatio <= 0) {
+            maxDeletedRatio = 0.2;
+        }
+    }
+
+    boolean snapshotEnabled() {
+        return snapshotPath != null && !snapshotPath.isBlank();
+    }
+}
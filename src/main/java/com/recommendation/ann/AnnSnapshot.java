@@ -0,0 +1,164 @@
+package com.recommendation.ann;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Snapshot file of an {@link HnswIndex} plus page titles, so a restart maps one file instead of re-reading and
+ * re-linking every embedding. The file is written to a sibling temp file and moved into place, and read back
+ * through a read-only memory mapping, which keeps the load a sequential page-cache copy. A single mapping is
+ * limited to 2 GB; larger indexes are rebuilt from the database instead.
+ */
+final class AnnSnapshot {
+
+    private static final int MAGIC = 0x414E4E31;
+    private static final int VERSION = 1;
+
+    private AnnSnapshot() {
+    }
+
+    record Contents(HnswIndex.Snapshot graph, Map<Long, String> titles, String modelId, Instant takenAt) {
+    }
+
+    /**
+     * Returns the approximate size of the file {@link #write} would produce for {@code graph}.
+     */
+    static long estimateBytes(HnswIndex.Snapshot graph, Map<Long, String> titles) {
+        long bytes = 64L + (long) graph.size() * (Long.BYTES + 4 + (long) graph.dimension() * Float.BYTES);
+        for (int[][] levels : graph.neighbors()) {
+            for (int[] list : levels) {
+                bytes += (long) list.length * Integer.BYTES;
+            }
+        }
+        for (String title : titles.values()) {
+            bytes += 12 + (title == null ? 0 : title.length() * 3L);
+        }
+        return bytes;
+    }
+
+    static void write(Path path, Contents contents) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        HnswIndex.Snapshot graph = contents.graph();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(contents.takenAt().toEpochMilli());
+            writeString(out, contents.modelId());
+            out.writeInt(graph.dimension());
+            out.writeInt(graph.m());
+            out.writeInt(graph.size());
+            out.writeInt(graph.entryPoint());
+            out.writeInt(graph.maxLevel());
+            for (int node = 0; node < graph.size(); node++) {
+                out.writeLong(graph.pageIds()[node]);
+            }
+            for (float value : graph.vectors()) {
+                out.writeFloat(value);
+            }
+            byte[] deleted = graph.deleted().toByteArray();
+            out.writeInt(deleted.length);
+            out.write(deleted);
+            for (int[][] levels : graph.neighbors()) {
+                out.writeInt(levels.length);
+                for (int[] list : levels) {
+                    for (int i = 0; i <= list[0]; i++) {
+                        out.writeInt(list[i]);
+                    }
+                }
+            }
+            out.writeInt(contents.titles().size());
+            for (Map.Entry<Long, String> title : contents.titles().entrySet()) {
+                out.writeLong(title.getKey());
+                writeString(out, title.getValue());
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Contents read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("ANN snapshot " + path + " exceeds a single 2 GB mapping.");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Unrecognised ANN snapshot format in " + path + ".");
+            }
+            Instant takenAt = Instant.ofEpochMilli(buffer.getLong());
+            String modelId = readString(buffer);
+            int dimension = buffer.getInt();
+            int m = buffer.getInt();
+            int size = buffer.getInt();
+            int entryPoint = buffer.getInt();
+            int maxLevel = buffer.getInt();
+            long[] pageIds = new long[size];
+            buffer.asLongBuffer().get(pageIds);
+            buffer.position(buffer.position() + size * Long.BYTES);
+            float[] vectors = new float[size * dimension];
+            buffer.asFloatBuffer().get(vectors);
+            buffer.position(buffer.position() + vectors.length * Float.BYTES);
+            byte[] deletedBytes = new byte[buffer.getInt()];
+            buffer.get(deletedBytes);
+            int[][][] neighbors = new int[size][][];
+            for (int node = 0; node < size; node++) {
+                int[][] levels = new int[buffer.getInt()][];
+                for (int level = 0; level < levels.length; level++) {
+                    int count = buffer.getInt();
+                    int[] list = new int[count + 1];
+                    list[0] = count;
+                    for (int i = 1; i <= count; i++) {
+                        list[i] = buffer.getInt();
+                    }
+                    levels[level] = list;
+                }
+                neighbors[node] = levels;
+            }
+            int titleCount = buffer.getInt();
+            Map<Long, String> titles = new HashMap<>(Math.max(16, titleCount * 4 / 3 + 1));
+            for (int i = 0; i < titleCount; i++) {
+                long pageId = buffer.getLong();
+                titles.put(pageId, readString(buffer));
+            }
+            HnswIndex.Snapshot graph = new HnswIndex.Snapshot(dimension, m, size, entryPoint, maxLevel,
+                    pageIds, vectors, neighbors, BitSet.valueOf(deletedBytes));
+            return new Contents(graph, titles, modelId, takenAt);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
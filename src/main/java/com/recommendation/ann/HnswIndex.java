@@ -0,0 +1,496 @@
+package com.recommendation.ann;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical navigable small world graph (Malkov and Yashunin) over squared L2 distance, the metric behind
+ * pgvector's {@code <->}.
+ * <p>
+ * Vectors live in one flat {@code float[]} ({@code node * dimension}) and adjacency lists in primitive
+ * {@code int[]} arrays whose first slot holds the neighbour count, so a node costs no objects beyond its lists.
+ * Re-inserting or removing a page marks its old node deleted; deleted nodes are still traversed but never returned,
+ * until {@link #compacted()} rebuilds the graph from the live nodes. Searches share a read lock and inserts take the
+ * write lock.
+ */
+class HnswIndex {
+
+    private static final Comparator<Candidate> NEAREST_FIRST = Comparator.comparingDouble(Candidate::distance);
+    private static final Comparator<Candidate> FARTHEST_FIRST = NEAREST_FIRST.reversed();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final Map<Long, Integer> nodeByPageId = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+
+    private float[] vectors;
+    private long[] pageIds;
+    private int[][][] neighbors;
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    HnswIndex(int dimension, int m, int efConstruction, int initialCapacity) {
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(m);
+        int capacity = Math.max(16, initialCapacity);
+        this.vectors = new float[capacity * dimension];
+        this.pageIds = new long[capacity];
+        this.neighbors = new int[capacity][][];
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    int m() {
+        return m;
+    }
+
+    /**
+     * Returns the number of live (not deleted) pages.
+     */
+    int size() {
+        lock.readLock().lock();
+        try {
+            return nodeByPageId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    boolean contains(long pageId) {
+        lock.readLock().lock();
+        try {
+            return nodeByPageId.containsKey(pageId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of deleted nodes still held in the graph.
+     */
+    int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return deleted.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the live pages.
+     */
+    long[] pageIds() {
+        lock.readLock().lock();
+        try {
+            return nodeByPageId.keySet().stream().mapToLong(Long::longValue).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a copy of the stored vector for {@code pageId}, or {@code null}.
+     */
+    float[] vector(long pageId) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodeByPageId.get(pageId);
+            return node == null ? null : Arrays.copyOfRange(vectors, node * dimension, (node + 1) * dimension);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces the vector for {@code pageId}. A replacement with an identical vector is a no-op.
+     *
+     * @param replace whether an existing vector for the page is replaced; {@code false} keeps it
+     * @return {@code true} if the graph changed
+     */
+    boolean put(long pageId, float[] vector, boolean replace) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException(
+                    "Expected a vector of dimension " + dimension + " but got " + vector.length + ".");
+        }
+        lock.writeLock().lock();
+        try {
+            Integer existing = nodeByPageId.get(pageId);
+            if (existing != null) {
+                if (!replace || Arrays.equals(vectors, existing * dimension, (existing + 1) * dimension,
+                        vector, 0, dimension)) {
+                    return false;
+                }
+                deleted.set(existing);
+            }
+            int node = allocate(pageId, vector, randomLevel());
+            nodeByPageId.put(pageId, node);
+            link(node);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the node of {@code pageId} deleted.
+     *
+     * @return {@code true} if the page was indexed
+     */
+    boolean remove(long pageId) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodeByPageId.remove(pageId);
+            if (node == null) {
+                return false;
+            }
+            deleted.set(node);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Builds a new index from the live nodes only. Only the copy is taken under the read lock, so this index keeps
+     * serving searches while the new graph is linked; inserts made in the meantime are not carried over.
+     */
+    HnswIndex compacted() {
+        long[] livePageIds;
+        float[] liveVectors;
+        lock.readLock().lock();
+        try {
+            livePageIds = new long[nodeByPageId.size()];
+            liveVectors = new float[livePageIds.length * dimension];
+            int live = 0;
+            for (int node = 0; node < size; node++) {
+                if (!deleted.get(node)) {
+                    livePageIds[live] = pageIds[node];
+                    System.arraycopy(vectors, node * dimension, liveVectors, live * dimension, dimension);
+                    live++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        HnswIndex index = new HnswIndex(dimension, m, efConstruction, livePageIds.length);
+        for (int i = 0; i < livePageIds.length; i++) {
+            index.put(livePageIds[i], Arrays.copyOfRange(liveVectors, i * dimension, (i + 1) * dimension), false);
+        }
+        return index;
+    }
+
+    /**
+     * Returns up to {@code k} live pages nearest to {@code query}, nearest first, exploring {@code ef} candidates
+     * on the bottom layer.
+     */
+    List<Neighbor> search(float[] query, int k, int ef, long excludedPageId) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) {
+                return List.of();
+            }
+            int current = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                current = greedyClosest(query, current, level);
+            }
+            PriorityQueue<Candidate> found = searchLayer(query, List.of(current), Math.max(ef, k), 0);
+            List<Candidate> ordered = new ArrayList<>(found);
+            ordered.sort(NEAREST_FIRST);
+            List<Neighbor> result = new ArrayList<>(k);
+            for (Candidate candidate : ordered) {
+                long pageId = pageIds[candidate.node()];
+                if (deleted.get(candidate.node()) || pageId == excludedPageId) {
+                    continue;
+                }
+                result.add(new Neighbor(pageId, (float) Math.sqrt(candidate.distance())));
+                if (result.size() == k) {
+                    break;
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the graph out under the read lock, for {@link AnnSnapshot}.
+     */
+    Snapshot snapshot() {
+        lock.readLock().lock();
+        try {
+            int[][][] links = new int[size][][];
+            for (int node = 0; node < size; node++) {
+                int[][] levels = neighbors[node];
+                links[node] = new int[levels.length][];
+                for (int level = 0; level < levels.length; level++) {
+                    links[node][level] = Arrays.copyOf(levels[level], levels[level][0] + 1);
+                }
+            }
+            return new Snapshot(dimension, m, size, entryPoint, maxLevel,
+                    Arrays.copyOf(pageIds, size), Arrays.copyOf(vectors, size * dimension),
+                    links, (BitSet) deleted.clone());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds an index from a snapshot without re-linking any node.
+     */
+    static HnswIndex restore(Snapshot snapshot, int efConstruction) {
+        HnswIndex index = new HnswIndex(snapshot.dimension(), snapshot.m(), efConstruction, snapshot.size());
+        System.arraycopy(snapshot.vectors(), 0, index.vectors, 0, snapshot.size() * snapshot.dimension());
+        System.arraycopy(snapshot.pageIds(), 0, index.pageIds, 0, snapshot.size());
+        for (int node = 0; node < snapshot.size(); node++) {
+            int[][] levels = snapshot.neighbors()[node];
+            index.neighbors[node] = new int[levels.length][];
+            for (int level = 0; level < levels.length; level++) {
+                int[] list = new int[(level == 0 ? index.maxM0 : index.m) + 1];
+                System.arraycopy(levels[level], 0, list, 0, levels[level][0] + 1);
+                index.neighbors[node][level] = list;
+            }
+            if (!snapshot.deleted().get(node)) {
+                index.nodeByPageId.put(snapshot.pageIds()[node], node);
+            }
+        }
+        index.deleted.or(snapshot.deleted());
+        index.size = snapshot.size();
+        index.entryPoint = snapshot.entryPoint();
+        index.maxLevel = snapshot.maxLevel();
+        return index;
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private int allocate(long pageId, float[] vector, int level) {
+        if (size == pageIds.length) {
+            int capacity = size + (size >> 1);
+            vectors = Arrays.copyOf(vectors, capacity * dimension);
+            pageIds = Arrays.copyOf(pageIds, capacity);
+            neighbors = Arrays.copyOf(neighbors, capacity);
+        }
+        int node = size++;
+        System.arraycopy(vector, 0, vectors, node * dimension, dimension);
+        pageIds[node] = pageId;
+        int[][] levels = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            levels[l] = new int[(l == 0 ? maxM0 : m) + 1];
+        }
+        neighbors[node] = levels;
+        return node;
+    }
+
+    private void link(int node) {
+        int level = neighbors[node].length - 1;
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+        float[] query = Arrays.copyOfRange(vectors, node * dimension, (node + 1) * dimension);
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(query, current, l);
+        }
+        List<Integer> entryPoints = List.of(current);
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            PriorityQueue<Candidate> candidates = searchLayer(query, entryPoints, efConstruction, l);
+            List<Candidate> selected = selectNeighbors(candidates, m);
+            int[] list = neighbors[node][l];
+            for (Candidate candidate : selected) {
+                list[++list[0]] = candidate.node();
+                connect(candidate.node(), node, l);
+            }
+            List<Integer> next = new ArrayList<>(candidates.size());
+            for (Candidate candidate : candidates) {
+                next.add(candidate.node());
+            }
+            entryPoints = next;
+        }
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    /**
+     * Adds {@code node} to the adjacency list of {@code target}; a full list keeps only its nearest entries.
+     */
+    private void connect(int target, int node, int level) {
+        int[] list = neighbors[target][level];
+        int capacity = list.length - 1;
+        if (list[0] < capacity) {
+            list[++list[0]] = node;
+            return;
+        }
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(FARTHEST_FIRST);
+        candidates.add(new Candidate(node, distance(target, node)));
+        for (int i = 1; i <= list[0]; i++) {
+            candidates.add(new Candidate(list[i], distance(target, list[i])));
+        }
+        List<Candidate> kept = selectNeighbors(candidates, capacity);
+        list[0] = 0;
+        for (Candidate candidate : kept) {
+            list[++list[0]] = candidate.node();
+        }
+    }
+
+    /**
+     * Keeps at most {@code max} candidates, nearest first, skipping any candidate that is closer to an already
+     * kept neighbour than to the base node (the paper's heuristic), then back-filling with the skipped ones.
+     */
+    private List<Candidate> selectNeighbors(PriorityQueue<Candidate> candidates, int max) {
+        List<Candidate> ordered = new ArrayList<>(candidates);
+        ordered.sort(NEAREST_FIRST);
+        List<Candidate> kept = new ArrayList<>(max);
+        List<Candidate> skipped = new ArrayList<>();
+        for (Candidate candidate : ordered) {
+            if (kept.size() == max) {
+                break;
+            }
+            boolean diverse = true;
+            for (Candidate neighbor : kept) {
+                if (distance(candidate.node(), neighbor.node()) < candidate.distance()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            (diverse ? kept : skipped).add(candidate);
+        }
+        for (int i = 0; i < skipped.size() && kept.size() < max; i++) {
+            kept.add(skipped.get(i));
+        }
+        return kept;
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float currentDistance = distance(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] list = neighbors[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                float candidateDistance = distance(query, list[i]);
+                if (candidateDistance < currentDistance) {
+                    current = list[i];
+                    currentDistance = candidateDistance;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search on one layer; returns up to {@code ef} nearest nodes as a farthest-first heap.
+     */
+    private PriorityQueue<Candidate> searchLayer(float[] query, List<Integer> entryPoints, int ef, int level) {
+        BitSet visited = new BitSet(size);
+        PriorityQueue<Candidate> toVisit = new PriorityQueue<>(NEAREST_FIRST);
+        PriorityQueue<Candidate> found = new PriorityQueue<>(FARTHEST_FIRST);
+        for (int entry : entryPoints) {
+            visited.set(entry);
+            Candidate candidate = new Candidate(entry, distance(query, entry));
+            toVisit.add(candidate);
+            found.add(candidate);
+            if (found.size() > ef) {
+                found.poll();
+            }
+        }
+        while (!toVisit.isEmpty()) {
+            Candidate closest = toVisit.poll();
+            if (found.size() >= ef && closest.distance() > found.peek().distance()) {
+                break;
+            }
+            int[][] levels = neighbors[closest.node()];
+            if (level >= levels.length) {
+                continue;
+            }
+            int[] list = levels[level];
+            for (int i = 1; i <= list[0]; i++) {
+                int neighbor = list[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float neighborDistance = distance(query, neighbor);
+                if (found.size() < ef || neighborDistance < found.peek().distance()) {
+                    Candidate candidate = new Candidate(neighbor, neighborDistance);
+                    toVisit.add(candidate);
+                    found.add(candidate);
+                    if (found.size() > ef) {
+                        found.poll();
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private float distance(int a, int b) {
+        int offsetA = a * dimension;
+        int offsetB = b * dimension;
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            float diff = vectors[offsetA + i] - vectors[offsetB + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private float distance(float[] query, int node) {
+        int offset = node * dimension;
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            float diff = query[i] - vectors[offset + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private record Candidate(int node, float distance) {
+    }
+
+    /**
+     * A search hit; {@code distance} is the L2 distance, as pgvector's {@code <->} reports it.
+     */
+    record Neighbor(long pageId, float distance) {
+    }
+
+    record Snapshot(
+            int dimension,
+            int m,
+            int size,
+            int entryPoint,
+            int maxLevel,
+            long[] pageIds,
+            float[] vectors,
+            int[][][] neighbors,
+            BitSet deleted
+    ) {
+    }
+}
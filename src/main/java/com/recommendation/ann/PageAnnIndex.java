@@ -0,0 +1,413 @@
+package com.recommendation.ann;
+
+import com.recommendation.dto.RecommendationDto;
+import com.recommendation.embedding.EmbeddingJobProperties;
+import com.recommendation.embedding.PageEmbedding;
+import com.recommendation.embedding.PageEmbeddingsWrittenEvent;
+import com.recommendation.embedding.PgVector;
+import com.recommendation.rerank.RerankCandidate;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Optional in-process nearest-neighbour index over {@code page_embedding} ({@code recommendation.ann.enabled}).
+ * <p>
+ * After startup the index is restored from its snapshot file and caught up with rows embedded since, or built from
+ * the table when there is no usable snapshot; until then {@link #isReady()} is {@code false} and callers use
+ * pgvector. Afterwards it follows {@link PageEmbeddingsWrittenEvent}s from the embedding job, so queries never
+ * touch the database. Titles are captured when a page is indexed and refreshed only when it is re-embedded.
+ */
+@Service
+@Slf4j
+public class PageAnnIndex implements DisposableBean {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AnnProperties properties;
+    private final EmbeddingJobProperties embeddingProperties;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // One thread applies embedding events in order, off the embedding writer's thread.
+    private final ExecutorService updates = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("ann-index-updates").factory());
+    private final Map<Long, String> titles = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final String loadSql;
+    private final String loadSinceSql;
+    private final String titlesSql;
+    private final String pageIdsSql;
+    private volatile HnswIndex index;
+    private volatile boolean ready;
+
+    public PageAnnIndex(JdbcTemplate jdbcTemplate, AnnProperties properties, EmbeddingJobProperties embeddingProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.embeddingProperties = embeddingProperties;
+        String select = """
+                SELECT e.%1$s AS page_id, p.title, e.%2$s AS embedding
+                FROM %3$s e
+                JOIN %4$s p ON p.%5$s = e.%1$s
+                WHERE e.%1$s > ?
+                """.formatted(
+                embeddingProperties.embeddingPageIdColumn(),
+                embeddingProperties.embeddingVectorColumn(),
+                embeddingProperties.embeddingTable(),
+                embeddingProperties.pageTable(),
+                embeddingProperties.pageIdColumn());
+        String page = " ORDER BY e.%s LIMIT ?".formatted(embeddingProperties.embeddingPageIdColumn());
+        this.loadSql = select + page;
+        this.loadSinceSql = select + " AND e.%s > ?".formatted(embeddingProperties.embeddingUpdatedAtColumn()) + page;
+        this.titlesSql = "SELECT %1$s AS id, title FROM %2$s WHERE %1$s = ANY(?)".formatted(
+                embeddingProperties.pageIdColumn(), embeddingProperties.pageTable());
+        this.pageIdsSql = "SELECT %s FROM %s".formatted(
+                embeddingProperties.embeddingPageIdColumn(), embeddingProperties.embeddingTable());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (properties.enabled()) {
+            executor.execute(this::load);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean contains(long pageId) {
+        HnswIndex current = index;
+        return current != null && current.contains(pageId);
+    }
+
+    /**
+     * Nearest pages to {@code query}, scored like the pgvector path as {@code 1 / (1 + distance)}.
+     */
+    public List<RecommendationDto> search(float[] query, int limit, int efSearch) {
+        HnswIndex current = index;
+        if (current == null || query.length != current.dimension()) {
+            return List.of();
+        }
+        return toDtos(current.search(query, limit, efSearch, Long.MIN_VALUE));
+    }
+
+    /**
+     * Nearest pages to the stored embedding of {@code pageId}, excluding the page itself.
+     */
+    public List<RecommendationDto> similarTo(long pageId, int limit) {
+        HnswIndex current = index;
+        float[] vector = current == null ? null : current.vector(pageId);
+        if (vector == null) {
+            return List.of();
+        }
+        return toDtos(current.search(vector, limit, Math.max(properties.efSearch(), limit + 1), pageId));
+    }
+
+    /**
+     * Returns a copy of the indexed vector of {@code pageId}, or {@code null}.
+     */
+    public float[] vector(long pageId) {
+        HnswIndex current = index;
+        return current == null ? null : current.vector(pageId);
+    }
+
+    /**
+     * Approximate nearest pages with their vectors, for exact re-ranking.
+     */
+    public List<RerankCandidate> candidates(float[] query, int count, int efSearch, long excludedPageId) {
+        HnswIndex current = index;
+        if (current == null || query.length != current.dimension()) {
+            return List.of();
+        }
+        List<HnswIndex.Neighbor> neighbors = current.search(query, count, efSearch, excludedPageId);
+        List<RerankCandidate> candidates = new ArrayList<>(neighbors.size());
+        for (HnswIndex.Neighbor neighbor : neighbors) {
+            float[] vector = current.vector(neighbor.pageId());
+            if (vector != null) {
+                candidates.add(new RerankCandidate(neighbor.pageId(), titles.get(neighbor.pageId()), vector));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Queues the written embeddings for insertion, so the embedding job's next write batch does not wait for graph
+     * construction; events are applied in the order they were published.
+     */
+    @EventListener
+    public void onEmbeddingsWritten(PageEmbeddingsWrittenEvent event) {
+        if (!properties.enabled() || event.embeddings().isEmpty()) {
+            return;
+        }
+        updates.execute(() -> {
+            try {
+                apply(event.embeddings());
+            } catch (RuntimeException e) {
+                log.warn("Failed to add {} embeddings to the ANN index.", event.embeddings().size(), e);
+            }
+        });
+    }
+
+    /**
+     * Queues removal of pages that no longer have an embedding. Running on the update thread means every write that
+     * was announced before the page ids are read is already in the index.
+     */
+    @Scheduled(fixedDelayString = "${recommendation.ann.reconcile-interval:1h}")
+    public void reconcile() {
+        if (!ready) {
+            return;
+        }
+        updates.execute(() -> {
+            try {
+                removeMissingPages();
+            } catch (RuntimeException e) {
+                log.warn("ANN index reconcile failed.", e);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${recommendation.ann.snapshot-interval:15m}")
+    public void snapshotIfChanged() {
+        if (ready && properties.snapshotEnabled() && dirty.getAndSet(false)) {
+            snapshot();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        updates.shutdown();
+        try {
+            if (!updates.awaitTermination(30, TimeUnit.SECONDS)) {
+                updates.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            updates.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        snapshotIfChanged();
+    }
+
+    private void apply(List<PageEmbedding> embeddings) {
+        List<Long> pageIds = new ArrayList<>(embeddings.size());
+        synchronized (this) {
+            HnswIndex current = indexFor(embeddings.get(0).vector().length);
+            for (PageEmbedding embedding : embeddings) {
+                current.put(embedding.pageId(), embedding.vector(), true);
+                pageIds.add(embedding.pageId());
+            }
+        }
+        loadTitles(pageIds);
+        dirty.set(true);
+        compactIfNeeded();
+    }
+
+    private void removeMissingPages() {
+        HnswIndex current = index;
+        if (current == null) {
+            return;
+        }
+        long[] embedded = jdbcTemplate.queryForList(pageIdsSql, Long.class).stream()
+                .mapToLong(Long::longValue)
+                .sorted()
+                .toArray();
+        int removed = 0;
+        for (long pageId : current.pageIds()) {
+            if (Arrays.binarySearch(embedded, pageId) < 0 && current.remove(pageId)) {
+                titles.remove(pageId);
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            log.info("Removed {} pages without embeddings from the ANN index.", removed);
+            dirty.set(true);
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * Rebuilds the graph without deleted nodes once they exceed {@code maxDeletedRatio}. Runs on the update
+     * thread after loading, so no insert can land in the old index while the new one is linked; searches keep
+     * using the old index until the swap.
+     */
+    private void compactIfNeeded() {
+        HnswIndex current = index;
+        if (!ready || current == null) {
+            return;
+        }
+        int deletedNodes = current.deletedCount();
+        if (deletedNodes <= properties.maxDeletedRatio() * Math.max(1, current.size())) {
+            return;
+        }
+        long start = System.nanoTime();
+        HnswIndex compacted = current.compacted();
+        synchronized (this) {
+            index = compacted;
+        }
+        dirty.set(true);
+        log.info("ANN index compacted: dropped {} deleted nodes, kept {} pages, in {} ms.",
+                deletedNodes, compacted.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void load() {
+        long start = System.nanoTime();
+        try {
+            Instant catchUpFrom = restoreSnapshot();
+            if (catchUpFrom == null) {
+                int loaded = loadFromTable(null);
+                log.info("ANN index built from {} embeddings in {} ms.", loaded, (System.nanoTime() - start) / 1_000_000);
+                dirty.set(loaded > 0);
+            } else {
+                int caughtUp = loadFromTable(catchUpFrom.minus(properties.catchUpMargin()));
+                log.info("ANN index restored from snapshot with {} pages and {} newer embeddings in {} ms.",
+                        index.size(), caughtUp, (System.nanoTime() - start) / 1_000_000);
+                dirty.set(caughtUp > 0);
+            }
+            ready = true;
+            updates.execute(this::compactIfNeeded);
+            snapshotIfChanged();
+        } catch (RuntimeException e) {
+            log.error("ANN index load failed; semantic search stays on pgvector.", e);
+        }
+    }
+
+    /**
+     * Replaces the index with the snapshot and returns when it was taken, or {@code null} if there is no
+     * usable snapshot.
+     */
+    private Instant restoreSnapshot() {
+        if (!properties.snapshotEnabled()) {
+            return null;
+        }
+        Path path = Path.of(properties.snapshotPath());
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            AnnSnapshot.Contents contents = AnnSnapshot.read(path);
+            if (!embeddingProperties.modelId().equals(contents.modelId())) {
+                log.info("ANN snapshot was built for model {} but the job uses {}; rebuilding.",
+                        contents.modelId(), embeddingProperties.modelId());
+                return null;
+            }
+            synchronized (this) {
+                index = HnswIndex.restore(contents.graph(), properties.efConstruction());
+                contents.titles().forEach((pageId, title) -> {
+                    if (title != null) {
+                        titles.put(pageId, title);
+                    }
+                });
+            }
+            return contents.takenAt();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable ANN snapshot {}.", path, e);
+            return null;
+        }
+    }
+
+    /**
+     * Pages through the embedding table in id order and indexes every row, or only rows embedded after
+     * {@code since}. A full build keeps vectors that events already replaced; a catch-up overwrites them.
+     */
+    private int loadFromTable(Instant since) {
+        long lastPageId = Long.MIN_VALUE;
+        int loaded = 0;
+        while (true) {
+            List<Row> rows = since == null
+                    ? jdbcTemplate.query(loadSql, this::mapRow, lastPageId, properties.loadBatchSize())
+                    : jdbcTemplate.query(loadSinceSql, this::mapRow, lastPageId, Timestamp.from(since),
+                            properties.loadBatchSize());
+            if (rows.isEmpty()) {
+                return loaded;
+            }
+            synchronized (this) {
+                HnswIndex current = indexFor(rows.get(0).vector().length);
+                for (Row row : rows) {
+                    if (current.put(row.pageId(), row.vector(), since != null)) {
+                        loaded++;
+                    }
+                    if (row.title() != null) {
+                        titles.put(row.pageId(), row.title());
+                    }
+                }
+            }
+            lastPageId = rows.get(rows.size() - 1).pageId();
+        }
+    }
+
+    private Row mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new Row(rs.getLong("page_id"), rs.getString("title"), PgVector.parse(rs.getString("embedding")));
+    }
+
+    private void loadTitles(List<Long> pageIds) {
+        jdbcTemplate.query(titlesSql,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", pageIds.toArray())),
+                rs -> {
+                    String title = rs.getString("title");
+                    if (title != null) {
+                        titles.put(rs.getLong("id"), title);
+                    }
+                });
+    }
+
+    private HnswIndex indexFor(int dimension) {
+        if (index == null) {
+            index = new HnswIndex(dimension, properties.m(), properties.efConstruction(), properties.loadBatchSize());
+        }
+        return index;
+    }
+
+    private void snapshot() {
+        HnswIndex current = index;
+        if (current == null) {
+            return;
+        }
+        Instant takenAt = Instant.now();
+        HnswIndex.Snapshot graph = current.snapshot();
+        Map<Long, String> titleCopy = Map.copyOf(titles);
+        if (AnnSnapshot.estimateBytes(graph, titleCopy) > Integer.MAX_VALUE) {
+            log.warn("ANN index with {} nodes is too large for a snapshot file; restarts will rebuild it.", graph.size());
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            AnnSnapshot.write(Path.of(properties.snapshotPath()),
+                    new AnnSnapshot.Contents(graph, titleCopy, embeddingProperties.modelId(), takenAt));
+            log.info("ANN snapshot with {} nodes written in {} ms.", graph.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            dirty.set(true);
+            log.warn("Failed to write ANN snapshot {}.", properties.snapshotPath(), e);
+        }
+    }
+
+    private List<RecommendationDto> toDtos(List<HnswIndex.Neighbor> neighbors) {
+        List<RecommendationDto> results = new ArrayList<>(neighbors.size());
+        for (HnswIndex.Neighbor neighbor : neighbors) {
+            results.add(new RecommendationDto(
+                    neighbor.pageId(), titles.get(neighbor.pageId()), 1.0 / (1.0 + neighbor.distance())));
+        }
+        return results;
+    }
+
+    private record Row(long pageId, String title, float[] vector) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.recommendation.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.recommendation.dto.RecommendationDto;
+import java.util.List;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caffeine-backed result caches: W-TinyLFU eviction bounded by an estimate of the retained heap, expiry after
+ * {@code recommendation.cache.ttl}, and statistics that Actuator publishes as {@code cache.*} metrics.
+ */
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(RecommendationCacheProperties.class)
+public class RecommendationCacheConfiguration {
+
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    private static final int ROW_OVERHEAD_BYTES = 64;
+
+    private static final List<String> CACHE_NAMES = List.of(
+            RecommendationCaches.PAGE_RECOMMENDATIONS,
+            RecommendationCaches.USER_RECOMMENDATIONS,
+            RecommendationCaches.QUERY_EMBEDDINGS);
+
+    /**
+     * {@code recommendation.cache.max-size} is the budget for all caches together; each gets an equal share, so the
+     * total stays within it however the traffic is spread.
+     */
+    @Bean
+    public CacheManager cacheManager(RecommendationCacheProperties properties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(CACHE_NAMES.toArray(String[]::new));
+        cacheManager.setAllowNullValues(false);
+        long bytesPerCache = Math.max(1, properties.maxSize().toBytes() / CACHE_NAMES.size());
+        for (String name : CACHE_NAMES) {
+            cacheManager.registerCustomCache(name, Caffeine.newBuilder()
+                    .maximumWeight(bytesPerCache)
+                    .weigher((Object key, Object value) -> estimateBytes(value))
+                    .expireAfterWrite(properties.ttl())
+                    .recordStats()
+                    .build());
+        }
+        return cacheManager;
+    }
+
+    static int estimateBytes(Object value) {
+        if (value instanceof float[] vector) {
+            return ENTRY_OVERHEAD_BYTES + vector.length * Float.BYTES;
+        }
+        if (!(value instanceof List<?> rows)) {
+            return ENTRY_OVERHEAD_BYTES;
+        }
+        long bytes = ENTRY_OVERHEAD_BYTES;
+        for (Object row : rows) {
+            bytes += ROW_OVERHEAD_BYTES;
+            if (row instanceof RecommendationDto dto && dto.title() != null) {
+                bytes += dto.title().length();
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+}
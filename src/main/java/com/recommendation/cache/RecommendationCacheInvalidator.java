@@ -0,0 +1,23 @@
+package com.recommendation.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops cached results after {@code item_recommendations} or {@code user_recommendations} have been refreshed.
+ */
+@Component
+@Slf4j
+public class RecommendationCacheInvalidator {
+
+    @CacheEvict(cacheNames = RecommendationCaches.PAGE_RECOMMENDATIONS, allEntries = true)
+    public void invalidatePageRecommendations() {
+        log.info("Invalidated cache {}.", RecommendationCaches.PAGE_RECOMMENDATIONS);
+    }
+
+    @CacheEvict(cacheNames = RecommendationCaches.USER_RECOMMENDATIONS, allEntries = true)
+    public void invalidateUserRecommendations() {
+        log.info("Invalidated cache {}.", RecommendationCaches.USER_RECOMMENDATIONS);
+    }
+}
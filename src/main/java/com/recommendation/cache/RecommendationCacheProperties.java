@@ -0,0 +1,24 @@
+package com.recommendation.cache;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "recommendation.cache")
+public record RecommendationCacheProperties(
+        DataSize maxSize,
+        Duration ttl
+) {
+    public RecommendationCacheProperties {
+        if (maxSize == null) {
+            maxSize = DataSize.ofMegabytes(64);
+        }
+        if (maxSize.toBytes() <= 0) {
+            throw new IllegalArgumentException("recommendation.cache.max-size must be > 0");
+        }
+        if (ttl == null) {
+            ttl = Duration.ofMinutes(10);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.recommendation.cache;
+
+/**
+ * Names of the result caches in front of {@link com.recommendation.service.RecommendationService}. Entries are keyed
+ * by (id, limit), except {@link #QUERY_EMBEDDINGS}, which maps normalized semantic-search text to its embedding.
+ */
+public final class RecommendationCaches {
+
+    public static final String PAGE_RECOMMENDATIONS = "pageRecommendations";
+    public static final String USER_RECOMMENDATIONS = "userRecommendations";
+    public static final String QUERY_EMBEDDINGS = "queryEmbeddings";
+
+    private RecommendationCaches() {
+    }
+}
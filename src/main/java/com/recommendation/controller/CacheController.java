@@ -0,0 +1,30 @@
+package com.recommendation.controller;
+
+import com.recommendation.cache.RecommendationCacheInvalidator;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/cache/recommendations")
+public class CacheController {
+
+    private final RecommendationCacheInvalidator cacheInvalidator;
+
+    public CacheController(RecommendationCacheInvalidator cacheInvalidator) {
+        this.cacheInvalidator = cacheInvalidator;
+    }
+
+    @PostMapping("/page/invalidate")
+    public ResponseEntity<Void> invalidatePageRecommendations() {
+        cacheInvalidator.invalidatePageRecommendations();
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/user/invalidate")
+    public ResponseEntity<Void> invalidateUserRecommendations() {
+        cacheInvalidator.invalidateUserRecommendations();
+        return ResponseEntity.noContent().build();
+    }
+}
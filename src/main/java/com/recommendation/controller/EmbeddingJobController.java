@@ -0,0 +1,51 @@
+package com.recommendation.controller;
+
+import com.recommendation.embedding.EmbeddingJobProgress;
+import com.recommendation.embedding.EmbeddingJobService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/embedding/job")
+public class EmbeddingJobController {
+
+    private final EmbeddingJobService embeddingJobService;
+
+    public EmbeddingJobController(EmbeddingJobService embeddingJobService) {
+        this.embeddingJobService = embeddingJobService;
+    }
+
+    @GetMapping
+    public EmbeddingJobProgress progress() {
+        return embeddingJobService.progress();
+    }
+
+    @PostMapping("/run")
+    public ResponseEntity<EmbeddingJobProgress> run() {
+        return respond(embeddingJobService.trigger("http"));
+    }
+
+    @PostMapping("/pause")
+    public ResponseEntity<EmbeddingJobProgress> pause() {
+        return respond(embeddingJobService.pause());
+    }
+
+    @PostMapping("/resume")
+    public ResponseEntity<EmbeddingJobProgress> resume() {
+        return respond(embeddingJobService.resume());
+    }
+
+    @PostMapping("/cancel")
+    public ResponseEntity<EmbeddingJobProgress> cancel() {
+        return respond(embeddingJobService.cancel());
+    }
+
+    private ResponseEntity<EmbeddingJobProgress> respond(boolean applied) {
+        HttpStatus status = applied ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT;
+        return ResponseEntity.status(status).body(embeddingJobService.progress());
+    }
+}
@@ -0,0 +1,33 @@
+package com.recommendation.controller;
+
+import com.recommendation.neighbors.ItemNeighborJob;
+import java.util.Map;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/neighbors/job")
+public class ItemNeighborJobController {
+
+    private final ItemNeighborJob itemNeighborJob;
+
+    public ItemNeighborJobController(ItemNeighborJob itemNeighborJob) {
+        this.itemNeighborJob = itemNeighborJob;
+    }
+
+    @GetMapping
+    public Map<String, Boolean> status() {
+        return Map.of("running", itemNeighborJob.isRunning());
+    }
+
+    @PostMapping("/run")
+    public ResponseEntity<Map<String, Boolean>> run(@RequestParam(value = "full", defaultValue = "false") boolean full) {
+        HttpStatus status = itemNeighborJob.trigger(full) ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT;
+        return ResponseEntity.status(status).body(status());
+    }
+}
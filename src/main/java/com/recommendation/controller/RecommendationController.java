@@ -1,20 +1,26 @@
 package com.recommendation.controller;
 
+import com.recommendation.dto.RecommendationBatchRequest;
+import com.recommendation.dto.RecommendationBatchResponse;
 import com.recommendation.dto.RecommendationDto;
 import com.recommendation.dto.SearchResultDto;
 import com.recommendation.service.RecommendationService;
+import com.recommendation.service.SemanticSearchTier;
+import java.util.LinkedHashMap;
 import java.util.List;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.Map;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
 public class RecommendationController {
-    private static final Logger log = LoggerFactory.getLogger(RecommendationController.class);
     private static final int DEFAULT_LIMIT = 10;
+    private static final int MAX_BATCH_IDS = 200;
 
     private final RecommendationService recommendationService;
 
@@ -26,36 +32,61 @@ public class RecommendationController {
     public List<SearchResultDto> search(
             @RequestParam("q") String query,
             @RequestParam(value = "limit", defaultValue = "10") int limit) {
-        long start = System.nanoTime();
-        try {
-            return recommendationService.search(query, normalizeLimit(limit));
-        } finally {
-            logLatency("/search", start, "query", query);
-        }
+        return recommendationService.search(query, normalizeLimit(limit));
+    }
+
+    @GetMapping("/search/semantic")
+    public List<RecommendationDto> semanticSearch(
+            @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "10") int limit,
+            @RequestParam(value = "ef_search", required = false) Integer efSearch,
+            @RequestParam(value = "tier", required = false) SemanticSearchTier tier) {
+        return recommendationService.semanticSearch(query, normalizeLimit(limit), efSearch, tier);
     }
 
     @GetMapping("/recommend/page/{id}")
     public List<RecommendationDto> recommendForPage(
             @PathVariable("id") long id,
             @RequestParam(value = "limit", defaultValue = "10") int limit) {
-        long start = System.nanoTime();
-        try {
-            return recommendationService.recommendForPage(id, normalizeLimit(limit));
-        } finally {
-            logLatency("/recommend/page/" + id, start, "id", id);
-        }
+        return recommendationService.recommendForPage(id, normalizeLimit(limit));
+    }
+
+    @GetMapping("/recommend/page/{id}/similar")
+    public List<RecommendationDto> similarPages(
+            @PathVariable("id") long id,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return recommendationService.similarPages(id, normalizeLimit(limit));
     }
 
     @GetMapping("/recommend/user/{id}")
     public List<RecommendationDto> recommendForUser(
             @PathVariable("id") long id,
             @RequestParam(value = "limit", defaultValue = "10") int limit) {
-        long start = System.nanoTime();
-        try {
-            return recommendationService.recommendForUser(id, normalizeLimit(limit));
-        } finally {
-            logLatency("/recommend/user/" + id, start, "id", id);
+        return recommendationService.recommendForUser(id, normalizeLimit(limit));
+    }
+
+    @PostMapping("/recommend/batch")
+    public ResponseEntity<RecommendationBatchResponse> recommendBatch(@RequestBody RecommendationBatchRequest request) {
+        Map<Long, Integer> pageLimits = limitsById(request.pages());
+        Map<Long, Integer> userLimits = limitsById(request.users());
+        if (pageLimits.size() + userLimits.size() > MAX_BATCH_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(recommendationService.recommendBatch(pageLimits, userLimits));
+    }
+
+    /**
+     * Collapses duplicate ids, keeping the largest requested limit.
+     */
+    private Map<Long, Integer> limitsById(List<RecommendationBatchRequest.Entry> entries) {
+        Map<Long, Integer> limits = new LinkedHashMap<>();
+        if (entries != null) {
+            for (RecommendationBatchRequest.Entry entry : entries) {
+                int limit = normalizeLimit(entry.limit() == null ? 0 : entry.limit());
+                limits.merge(entry.id(), limit, Math::max);
+            }
         }
+        return limits;
     }
 
     private int normalizeLimit(int limit) {
@@ -64,9 +95,4 @@ public class RecommendationController {
         }
         return limit;
     }
-
-    private void logLatency(String path, long start, String key, Object value) {
-        double elapsedMs = (System.nanoTime() - start) / 1_000_000.0;
-        log.info("endpoint={} {}={} latencyMs={}", path, key, value, String.format("%.2f", elapsedMs));
-    }
 }
@@ -0,0 +1,12 @@
+package com.recommendation.dto;
+
+import java.util.List;
+
+/**
+ * Item and user ids to recommend for in one call. An entry without a positive {@code limit} gets the default.
+ */
+public record RecommendationBatchRequest(List<Entry> pages, List<Entry> users) {
+
+    public record Entry(long id, Integer limit) {
+    }
+}
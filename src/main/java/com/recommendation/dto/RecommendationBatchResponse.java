@@ -0,0 +1,14 @@
+package com.recommendation.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results of a {@link RecommendationBatchRequest}, keyed by the requested id. Ids without recommendations map to an
+ * empty list.
+ */
+public record RecommendationBatchResponse(
+        Map<Long, List<RecommendationDto>> pages,
+        Map<Long, List<RecommendationDto>> users
+) {
+}
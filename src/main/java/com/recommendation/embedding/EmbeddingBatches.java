@@ -0,0 +1,51 @@
+package com.recommendation.embedding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits texts into model calls that respect {@link EmbeddingJobProperties.ModelBatch} limits.
+ */
+final class EmbeddingBatches {
+
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private EmbeddingBatches() {
+    }
+
+    /**
+     * Partitions {@code texts} into consecutive sub-lists with at most {@code maxTexts} entries and, when a
+     * token budget is configured, at most {@code maxTokens} estimated tokens each. A single text over the
+     * budget still gets a call of its own.
+     */
+    static List<List<String>> partition(List<String> texts, EmbeddingJobProperties.ModelBatch limits) {
+        List<List<String>> batches = new ArrayList<>();
+        int start = 0;
+        int tokens = 0;
+        for (int i = 0; i < texts.size(); i++) {
+            int textTokens = estimateTokens(texts.get(i));
+            boolean full = i - start >= limits.maxTexts()
+                    || (limits.maxTokens() > 0 && i > start && tokens + textTokens > limits.maxTokens());
+            if (full) {
+                batches.add(texts.subList(start, i));
+                start = i;
+                tokens = 0;
+            }
+            tokens += textTokens;
+        }
+        if (start < texts.size()) {
+            batches.add(texts.subList(start, texts.size()));
+        }
+        return batches;
+    }
+
+    /**
+     * Rough token estimate; good enough to keep requests under the model's context budget without a tokenizer.
+     */
+    static int estimateTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 1;
+        }
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+}
@@ -0,0 +1,181 @@
+package com.recommendation.embedding;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Persists how far the embedding job has got, so a crashed or redeployed job resumes from its last written page
+ * instead of starting over. Unsharded runs keep one cursor per job name; sharded runs keep one cursor per shard,
+ * together with the claim that lets several workers split the id range.
+ */
+@Component
+public class EmbeddingCheckpointStore {
+
+    static final long NO_CHECKPOINT = Long.MIN_VALUE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EmbeddingJobProperties properties;
+    private final String workerId = ManagementFactory.getRuntimeMXBean().getName();
+
+    public EmbeddingCheckpointStore(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            EmbeddingJobProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+    }
+
+    void ensureSchema() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS %s (
+                    job_name text PRIMARY KEY,
+                    last_page_id bigint NOT NULL,
+                    updated_at timestamptz NOT NULL DEFAULT now()
+                )
+                """.formatted(properties.checkpointTable()));
+        if (properties.shards().enabled()) {
+            jdbcTemplate.execute("""
+                    CREATE TABLE IF NOT EXISTS %s (
+                        job_name text NOT NULL,
+                        shard_id int NOT NULL,
+                        range_start bigint NOT NULL,
+                        range_end bigint NOT NULL,
+                        last_page_id bigint NOT NULL,
+                        status text NOT NULL DEFAULT 'PENDING',
+                        claimed_by text,
+                        claimed_at timestamptz,
+                        PRIMARY KEY (job_name, shard_id)
+                    )
+                    """.formatted(properties.shardTable()));
+        }
+    }
+
+    /**
+     * Returns the last page id written by an unfinished run, or {@link #NO_CHECKPOINT}.
+     */
+    long load() {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT last_page_id FROM %s WHERE job_name = ?".formatted(properties.checkpointTable()),
+                Long.class,
+                properties.jobName());
+        return ids.isEmpty() ? NO_CHECKPOINT : ids.get(0);
+    }
+
+    void save(long lastPageId) {
+        jdbcTemplate.update("""
+                INSERT INTO %s (job_name, last_page_id, updated_at)
+                VALUES (?, ?, now())
+                ON CONFLICT (job_name)
+                DO UPDATE SET last_page_id = EXCLUDED.last_page_id, updated_at = EXCLUDED.updated_at
+                """.formatted(properties.checkpointTable()),
+                properties.jobName(),
+                lastPageId);
+    }
+
+    /**
+     * Clears the cursor after a completed run, so the next run sweeps the whole table again.
+     */
+    void clear() {
+        jdbcTemplate.update("DELETE FROM %s WHERE job_name = ?".formatted(properties.checkpointTable()),
+                properties.jobName());
+    }
+
+    /**
+     * Creates the shard rows for a new run. Does nothing while an earlier run still has unfinished shards; when
+     * every shard of the previous run is done, the shards are re-planned over the current id range.
+     * Planning is idempotent, so nodes starting at the same time may all call it.
+     */
+    void planShards(long[] pageIdRange) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Integer unfinished = jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM %s WHERE job_name = ? AND status <> 'DONE'".formatted(properties.shardTable()),
+                    Integer.class,
+                    properties.jobName());
+            if (unfinished != null && unfinished > 0) {
+                return;
+            }
+            jdbcTemplate.update("DELETE FROM %s WHERE job_name = ?".formatted(properties.shardTable()),
+                    properties.jobName());
+            if (pageIdRange == null) {
+                return;
+            }
+            int count = properties.shards().count();
+            long min = pageIdRange[0];
+            long max = pageIdRange[1];
+            long span = Math.max(1, (max - min + count) / count);
+            String insertSql = """
+                    INSERT INTO %s (job_name, shard_id, range_start, range_end, last_page_id)
+                    VALUES (?, ?, ?, ?, ?)
+                    ON CONFLICT (job_name, shard_id) DO NOTHING
+                    """.formatted(properties.shardTable());
+            for (int shard = 0; shard < count; shard++) {
+                long start = min + shard * span;
+                if (start > max) {
+                    break;
+                }
+                long end = shard == count - 1 ? Long.MAX_VALUE : Math.min(max, start + span - 1);
+                jdbcTemplate.update(insertSql, properties.jobName(), shard, start, end, start - 1);
+            }
+        });
+    }
+
+    /**
+     * Claims one unfinished shard that no live worker holds, or returns {@code null} when none is left.
+     */
+    Shard claimShard() {
+        return transactionTemplate.execute(status -> {
+            List<Shard> candidates = jdbcTemplate.query("""
+                    SELECT shard_id, range_end, last_page_id
+                    FROM %s
+                    WHERE job_name = ?
+                      AND status <> 'DONE'
+                      AND (claimed_at IS NULL OR claimed_at < now() - make_interval(secs => ?))
+                    ORDER BY shard_id
+                    LIMIT 1
+                    FOR UPDATE SKIP LOCKED
+                    """.formatted(properties.shardTable()),
+                    (rs, rowNum) -> new Shard(rs.getInt("shard_id"), rs.getLong("range_end"), rs.getLong("last_page_id")),
+                    properties.jobName(),
+                    properties.shards().lease().toSeconds());
+            if (candidates.isEmpty()) {
+                return null;
+            }
+            Shard shard = candidates.get(0);
+            jdbcTemplate.update("""
+                    UPDATE %s SET status = 'RUNNING', claimed_by = ?, claimed_at = now()
+                    WHERE job_name = ? AND shard_id = ?
+                    """.formatted(properties.shardTable()),
+                    workerId, properties.jobName(), shard.shardId());
+            return shard;
+        });
+    }
+
+    /**
+     * Records progress within a claimed shard and renews the claim.
+     */
+    void saveShard(int shardId, long lastPageId) {
+        jdbcTemplate.update("""
+                UPDATE %s SET last_page_id = ?, claimed_at = now()
+                WHERE job_name = ? AND shard_id = ? AND claimed_by = ?
+                """.formatted(properties.shardTable()),
+                lastPageId, properties.jobName(), shardId, workerId);
+    }
+
+    void completeShard(int shardId) {
+        jdbcTemplate.update("""
+                UPDATE %s SET status = 'DONE', claimed_at = now()
+                WHERE job_name = ? AND shard_id = ? AND claimed_by = ?
+                """.formatted(properties.shardTable()),
+                properties.jobName(), shardId, workerId);
+    }
+
+    record Shard(int shardId, long rangeEnd, long lastPageId) {
+    }
+}
@@ -1,7 +1,20 @@
 package com.recommendation.embedding;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public interface EmbeddingClient {
-    List<Double> embed(String text);
+    float[] embed(String text);
+
+    /**
+     * Embeds all texts, returning one vector per text in input order. Implementations that can send several
+     * texts in one model call should override this; the default embeds the texts one by one.
+     */
+    default List<float[]> embedAll(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            vectors.add(embed(text));
+        }
+        return vectors;
+    }
 }
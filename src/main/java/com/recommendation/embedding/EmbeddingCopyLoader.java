@@ -0,0 +1,136 @@
+package com.recommendation.embedding;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bulk write path: streams a batch into a session-local staging table with {@code COPY ... FROM STDIN (FORMAT
+ * binary)} and merges it into the embedding table with one set-based upsert, all in one transaction.
+ * <p>
+ * The staging table stores page ids as {@code bigint} and vectors with the target column's type, so the binary
+ * tuples written here always match it regardless of how the target table declares its id column.
+ */
+class EmbeddingCopyLoader {
+
+    private static final byte[] COPY_SIGNATURE = "PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1);
+    private static final int HEADER_EXTENSION_BYTES = 0;
+    private static final short FIELD_COUNT = 3;
+    private static final int VECTOR_HEADER_BYTES = 4;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String createStagingSql;
+    private final String copySql;
+    private final String mergeSql;
+    private final String modelId;
+
+    EmbeddingCopyLoader(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, EmbeddingJobProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        String stagingTable = stagingTableName(properties.embeddingTable());
+        this.createStagingSql = """
+                CREATE TEMP TABLE IF NOT EXISTS %s
+                ON COMMIT DELETE ROWS
+                AS SELECT %s::bigint AS page_id, %s AS embedding, %s::text AS content_hash
+                FROM %s
+                WITH NO DATA
+                """.formatted(
+                stagingTable,
+                properties.embeddingPageIdColumn(),
+                properties.embeddingVectorColumn(),
+                properties.embeddingHashColumn(),
+                properties.embeddingTable()
+        );
+        this.copySql = "COPY %s (page_id, embedding, content_hash) FROM STDIN (FORMAT binary)".formatted(stagingTable);
+        this.mergeSql = """
+                INSERT INTO %1$s (%2$s, %3$s, %4$s, %5$s, %6$s)
+                SELECT page_id, embedding, content_hash, ?, now() FROM %7$s
+                ON CONFLICT (%2$s)
+                DO UPDATE SET %3$s = EXCLUDED.%3$s,
+                              %4$s = EXCLUDED.%4$s,
+                              %5$s = EXCLUDED.%5$s,
+                              %6$s = EXCLUDED.%6$s
+                """.formatted(
+                properties.embeddingTable(),
+                properties.embeddingPageIdColumn(),
+                properties.embeddingVectorColumn(),
+                properties.embeddingHashColumn(),
+                properties.embeddingModelColumn(),
+                properties.embeddingUpdatedAtColumn(),
+                stagingTable
+        );
+        this.modelId = properties.modelId();
+    }
+
+    int write(List<PageEmbedding> embeddings) {
+        Integer merged = transactionTemplate.execute(status -> jdbcTemplate.execute(
+                (ConnectionCallback<Integer>) connection -> copyAndMerge(connection, embeddings)));
+        return merged == null ? 0 : merged;
+    }
+
+    private int copyAndMerge(Connection connection, List<PageEmbedding> embeddings) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(createStagingSql);
+        }
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql);
+        try {
+            byte[] header = ByteBuffer.allocate(COPY_SIGNATURE.length + 8)
+                    .put(COPY_SIGNATURE)
+                    .putInt(0)
+                    .putInt(HEADER_EXTENSION_BYTES)
+                    .array();
+            copyIn.writeToCopy(header, 0, header.length);
+            byte[] row = new byte[0];
+            for (PageEmbedding embedding : embeddings) {
+                int vectorBytes = VECTOR_HEADER_BYTES + embedding.vector().length * Float.BYTES;
+                byte[] hash = embedding.contentHash() == null
+                        ? null
+                        : embedding.contentHash().getBytes(StandardCharsets.UTF_8);
+                int rowBytes = 2 + 4 + Long.BYTES + 4 + vectorBytes + 4 + (hash == null ? 0 : hash.length);
+                if (row.length < rowBytes) {
+                    row = new byte[rowBytes];
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(row)
+                        .putShort(FIELD_COUNT)
+                        .putInt(Long.BYTES)
+                        .putLong(embedding.pageId())
+                        .putInt(vectorBytes);
+                PgVector.writeBinary(embedding.vector(), row, buffer.position());
+                buffer.position(buffer.position() + vectorBytes);
+                if (hash == null) {
+                    buffer.putInt(-1);
+                } else {
+                    buffer.putInt(hash.length).put(hash);
+                }
+                copyIn.writeToCopy(row, 0, rowBytes);
+            }
+            byte[] trailer = {(byte) 0xFF, (byte) 0xFF};
+            copyIn.writeToCopy(trailer, 0, trailer.length);
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement(mergeSql)) {
+            statement.setString(1, modelId);
+            return statement.executeUpdate();
+        }
+    }
+
+    private static String stagingTableName(String embeddingTable) {
+        String simpleName = embeddingTable.substring(embeddingTable.lastIndexOf('.') + 1).replace("\"", "");
+        return simpleName + "_staging";
+    }
+}
@@ -6,9 +6,11 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Configuration
 @EnableConfigurationProperties(EmbeddingJobProperties.class)
+@EnableScheduling
 public class EmbeddingJobConfiguration {
 
     @Bean
@@ -17,9 +19,15 @@ public class EmbeddingJobConfiguration {
         return new OfflineScriptEmbeddingClient(properties, objectMapper);
     }
 
+    @Bean
+    @ConditionalOnProperty(name = "embedding.job.source", havingValue = "OFFLINE_WORKER")
+    public EmbeddingClient offlineWorkerEmbeddingClient(EmbeddingJobProperties properties, ObjectMapper objectMapper) {
+        return new OfflineWorkerEmbeddingClient(properties, objectMapper);
+    }
+
     @Bean
     @ConditionalOnProperty(name = "embedding.job.source", havingValue = "POSTGRESML", matchIfMissing = true)
-    public EmbeddingClient postgresMlEmbeddingClient(EmbeddingModel embeddingModel) {
-        return new PostgresMlEmbeddingClient(embeddingModel);
+    public EmbeddingClient postgresMlEmbeddingClient(EmbeddingModel embeddingModel, EmbeddingJobProperties properties) {
+        return new PostgresMlEmbeddingClient(embeddingModel, properties.modelBatch());
     }
 }
@@ -0,0 +1,88 @@
+package com.recommendation.embedding;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared between one embedding run and whoever manages it: the run reports progress and checks for pause and
+ * cancel requests between batches.
+ */
+public final class EmbeddingJobControl {
+
+    private final Object lock = new Object();
+    private final LongAdder processed = new LongAdder();
+    private final AtomicLong pending = new AtomicLong(-1);
+    private boolean paused;
+    private volatile boolean cancelled;
+
+    /**
+     * Blocks while the run is paused.
+     *
+     * @throws CancellationException if the run has been cancelled
+     */
+    void awaitRunnable() {
+        synchronized (lock) {
+            while (paused && !cancelled) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Embedding job interrupted while paused.");
+                }
+            }
+        }
+        if (cancelled) {
+            throw new CancellationException("Embedding job cancelled.");
+        }
+    }
+
+    void recordProcessed(long count) {
+        processed.add(count);
+    }
+
+    void setPending(long count) {
+        pending.set(count);
+    }
+
+    public long processed() {
+        return processed.sum();
+    }
+
+    /**
+     * Returns the number of pages that were pending when the run started, or -1 when it was not counted.
+     */
+    public long pending() {
+        return pending.get();
+    }
+
+    public boolean paused() {
+        synchronized (lock) {
+            return paused;
+        }
+    }
+
+    public boolean cancelled() {
+        return cancelled;
+    }
+
+    public void pause() {
+        synchronized (lock) {
+            paused = true;
+        }
+    }
+
+    public void resume() {
+        synchronized (lock) {
+            paused = false;
+            lock.notifyAll();
+        }
+    }
+
+    public void cancel() {
+        synchronized (lock) {
+            cancelled = true;
+            lock.notifyAll();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.recommendation.embedding;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer meters for the embedding job: model call latency and batch size, write latency, written records, and
+ * the throughput of the most recent batch.
+ */
+@Component
+public class EmbeddingJobMetrics {
+
+    private final Timer modelCallTimer;
+    private final DistributionSummary modelBatchSize;
+    private final Timer writeTimer;
+    private final Counter writtenRecords;
+    private final AtomicLong lastBatchRecordsPerSecond = new AtomicLong();
+
+    public EmbeddingJobMetrics(MeterRegistry meterRegistry, EmbeddingJobProperties properties) {
+        this.modelCallTimer = Timer.builder("embedding.model.call")
+                .description("Latency of one embedding model call for a batch of texts")
+                .tag("source", properties.source().name())
+                .register(meterRegistry);
+        this.modelBatchSize = DistributionSummary.builder("embedding.model.batch.size")
+                .description("Texts per embedding model call")
+                .baseUnit("texts")
+                .register(meterRegistry);
+        this.writeTimer = Timer.builder("embedding.store.write")
+                .description("Latency of writing one batch of embeddings")
+                .tag("mode", properties.writeMode().name())
+                .register(meterRegistry);
+        this.writtenRecords = Counter.builder("embedding.job.records.written")
+                .description("Embeddings written by the embedding job")
+                .register(meterRegistry);
+        Gauge.builder("embedding.job.throughput", lastBatchRecordsPerSecond, AtomicLong::get)
+                .description("Records per second of the most recently written batch, from its model call to its write")
+                .baseUnit("records.per.second")
+                .register(meterRegistry);
+    }
+
+    <T> T recordModelCall(int texts, Supplier<T> call) {
+        modelBatchSize.record(texts);
+        return modelCallTimer.record(call);
+    }
+
+    <T> T recordWrite(Supplier<T> write) {
+        return writeTimer.record(write);
+    }
+
+    /**
+     * Records a finished batch of {@code records} that took {@code elapsedNanos} from model call to write.
+     */
+    void recordBatch(int records, long elapsedNanos) {
+        writtenRecords.increment(records);
+        lastBatchRecordsPerSecond.set(records * 1_000_000_000L / Math.max(1, elapsedNanos));
+    }
+}
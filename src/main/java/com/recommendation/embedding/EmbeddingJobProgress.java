@@ -0,0 +1,28 @@
+package com.recommendation.embedding;
+
+import java.time.Instant;
+
+/**
+ * Snapshot of the current or last embedding run. {@code pending} and {@code etaSeconds} are {@code null} when the
+ * run does not count its pending pages up front (incremental and sharded runs).
+ */
+public record EmbeddingJobProgress(
+        State state,
+        String trigger,
+        long processed,
+        Long pending,
+        double recordsPerSecond,
+        Long etaSeconds,
+        Instant startedAt,
+        Instant finishedAt,
+        String error
+) {
+    public enum State {
+        IDLE,
+        RUNNING,
+        PAUSED,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+}
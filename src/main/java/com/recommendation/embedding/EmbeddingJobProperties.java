@@ -7,6 +7,8 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "embedding.job")
 public record EmbeddingJobProperties(
         boolean enabled,
+        Boolean runOnStartup,
+        String schedule,
         int batchSize,
         String pageTable,
         String pageIdColumn,
@@ -14,25 +16,170 @@ public record EmbeddingJobProperties(
         String embeddingTable,
         String embeddingPageIdColumn,
         String embeddingVectorColumn,
+        String embeddingHashColumn,
+        String embeddingModelColumn,
+        String embeddingUpdatedAtColumn,
+        String pageUpdatedAtColumn,
+        Mode mode,
+        String modelId,
         int expectedDimension,
         EmbeddingSource source,
         String offlineScriptPath,
-        Duration offlineTimeout
+        Duration offlineTimeout,
+        int offlineWorkers,
+        WriteMode writeMode,
+        String jobName,
+        String checkpointTable,
+        String shardTable,
+        Pipeline pipeline,
+        ModelBatch modelBatch,
+        Shards shards
 ) {
+    /**
+     * Which pages a run embeds: {@code MISSING} only pages without an embedding row, {@code INCREMENTAL} also
+     * pages whose content hash or model id differs from the one stored with their embedding.
+     */
+    public enum Mode {
+        MISSING,
+        INCREMENTAL
+    }
+
     public enum EmbeddingSource {
         POSTGRESML,
-        OFFLINE
+        OFFLINE,
+        OFFLINE_WORKER
+    }
+
+    /**
+     * How embedding batches are written: {@code UPSERT} runs a batched INSERT ... ON CONFLICT per row,
+     * {@code COPY} streams the batch with binary COPY into a staging table and merges it with one statement.
+     */
+    public enum WriteMode {
+        UPSERT,
+        COPY
     }
 
     public EmbeddingJobProperties {
+        if (runOnStartup == null) {
+            runOnStartup = Boolean.TRUE;
+        }
         if (batchSize <= 0) {
             throw new IllegalArgumentException("embedding.job.batch-size must be > 0");
         }
         if (expectedDimension < 0) {
             throw new IllegalArgumentException("embedding.job.expected-dimension must be >= 0");
         }
+        if (embeddingHashColumn == null || embeddingHashColumn.isBlank()) {
+            embeddingHashColumn = "content_hash";
+        }
+        if (embeddingModelColumn == null || embeddingModelColumn.isBlank()) {
+            embeddingModelColumn = "model_id";
+        }
+        if (embeddingUpdatedAtColumn == null || embeddingUpdatedAtColumn.isBlank()) {
+            embeddingUpdatedAtColumn = "embedded_at";
+        }
+        if (mode == null) {
+            mode = Mode.MISSING;
+        }
+        if (source == null) {
+            source = EmbeddingSource.POSTGRESML;
+        }
+        if (modelId == null || modelId.isBlank()) {
+            modelId = source.name().toLowerCase();
+        }
         if (offlineTimeout == null) {
             offlineTimeout = Duration.ofSeconds(30);
         }
+        if (offlineWorkers < 0) {
+            throw new IllegalArgumentException("embedding.job.offline-workers must be >= 0");
+        }
+        if (offlineWorkers == 0) {
+            offlineWorkers = 2;
+        }
+        if (writeMode == null) {
+            writeMode = WriteMode.UPSERT;
+        }
+        if (jobName == null || jobName.isBlank()) {
+            jobName = "page-embedding";
+        }
+        if (checkpointTable == null || checkpointTable.isBlank()) {
+            checkpointTable = "embedding_job_checkpoint";
+        }
+        if (shardTable == null || shardTable.isBlank()) {
+            shardTable = "embedding_job_shard";
+        }
+        if (pipeline == null) {
+            pipeline = new Pipeline(false, 0, 0);
+        }
+        if (modelBatch == null) {
+            modelBatch = new ModelBatch(0, 0);
+        }
+        if (shards == null) {
+            shards = new Shards(0, 0, null);
+        }
+    }
+
+    /**
+     * Settings for the pipelined mode: one loader, a bounded pool of embedders and one batch writer,
+     * connected by bounded queues so a slow stage throttles the ones feeding it.
+     */
+    public record Pipeline(boolean enabled, int embedders, int queueCapacity) {
+        public Pipeline {
+            if (embedders < 0) {
+                throw new IllegalArgumentException("embedding.job.pipeline.embedders must be >= 0");
+            }
+            if (queueCapacity < 0) {
+                throw new IllegalArgumentException("embedding.job.pipeline.queue-capacity must be >= 0");
+            }
+            if (embedders == 0) {
+                embedders = Runtime.getRuntime().availableProcessors();
+            }
+            if (queueCapacity == 0) {
+                queueCapacity = embedders * 2;
+            }
+        }
+    }
+
+    /**
+     * Limits for a single multi-text model call. {@code maxTokens} is an estimated budget; 0 disables it.
+     */
+    public record ModelBatch(int maxTexts, int maxTokens) {
+        public ModelBatch {
+            if (maxTexts < 0) {
+                throw new IllegalArgumentException("embedding.job.model-batch.max-texts must be >= 0");
+            }
+            if (maxTokens < 0) {
+                throw new IllegalArgumentException("embedding.job.model-batch.max-tokens must be >= 0");
+            }
+            if (maxTexts == 0) {
+                maxTexts = 64;
+            }
+        }
+    }
+
+    /**
+     * Splits the page id range into {@code count} shards that workers on any node claim with
+     * {@code FOR UPDATE SKIP LOCKED}. A claim expires after {@code lease} without progress, so shards held by a
+     * crashed worker are picked up again. Sharding is off when {@code count <= 1}.
+     */
+    public record Shards(int count, int workers, Duration lease) {
+        public Shards {
+            if (count < 0) {
+                throw new IllegalArgumentException("embedding.job.shards.count must be >= 0");
+            }
+            if (workers < 0) {
+                throw new IllegalArgumentException("embedding.job.shards.workers must be >= 0");
+            }
+            if (workers == 0) {
+                workers = Runtime.getRuntime().availableProcessors();
+            }
+            if (lease == null) {
+                lease = Duration.ofMinutes(10);
+            }
+        }
+
+        public boolean enabled() {
+            return count > 1;
+        }
     }
 }
@@ -0,0 +1,178 @@
+package com.recommendation.embedding;
+
+import java.time.Instant;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs {@link PageEmbeddingBatchJob} in the background on a virtual thread, so application startup and the web
+ * tier never wait for a backfill. Runs start after the application is ready (if
+ * {@code embedding.job.run-on-startup}), on the {@code embedding.job.schedule} cron, or on demand; at most one run
+ * is active per node.
+ */
+@Service
+@Slf4j
+public class EmbeddingJobService implements DisposableBean {
+
+    private final PageEmbeddingBatchJob job;
+    private final EmbeddingJobProperties properties;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private Run current;
+
+    public EmbeddingJobService(PageEmbeddingBatchJob job, EmbeddingJobProperties properties) {
+        this.job = job;
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!properties.enabled()) {
+            log.info("Embedding job disabled (embedding.job.enabled=false).");
+            return;
+        }
+        if (properties.runOnStartup()) {
+            trigger("startup");
+        }
+    }
+
+    @Scheduled(cron = "${embedding.job.schedule:-}")
+    public void onSchedule() {
+        if (properties.enabled()) {
+            trigger("schedule");
+        }
+    }
+
+    /**
+     * Starts a run unless the job is disabled on this node or a run is already active.
+     *
+     * @return {@code true} if a new run was started
+     */
+    public synchronized boolean trigger(String reason) {
+        if (!properties.enabled()) {
+            log.info("Embedding job disabled (embedding.job.enabled=false); ignoring {} trigger.", reason);
+            return false;
+        }
+        if (current != null && current.active()) {
+            log.info("Embedding job already running; ignoring {} trigger.", reason);
+            return false;
+        }
+        Run run = new Run(reason);
+        current = run;
+        executor.execute(() -> execute(run));
+        return true;
+    }
+
+    public synchronized boolean pause() {
+        if (current == null || !current.active()) {
+            return false;
+        }
+        current.control.pause();
+        return true;
+    }
+
+    public synchronized boolean resume() {
+        if (current == null || !current.active()) {
+            return false;
+        }
+        current.control.resume();
+        return true;
+    }
+
+    public synchronized boolean cancel() {
+        if (current == null || !current.active()) {
+            return false;
+        }
+        current.control.cancel();
+        return true;
+    }
+
+    public synchronized EmbeddingJobProgress progress() {
+        if (current == null) {
+            return new EmbeddingJobProgress(EmbeddingJobProgress.State.IDLE, null, 0, null, 0, null, null, null, null);
+        }
+        return current.snapshot();
+    }
+
+    @Override
+    public void destroy() {
+        Run run;
+        synchronized (this) {
+            run = current;
+        }
+        if (run != null) {
+            run.control.cancel();
+        }
+        executor.shutdownNow();
+    }
+
+    private void execute(Run run) {
+        log.info("Embedding job started ({}).", run.trigger);
+        try {
+            job.run(run.control);
+            run.finish(EmbeddingJobProgress.State.COMPLETED, null);
+        } catch (CancellationException e) {
+            log.info("Embedding job cancelled after {} records.", run.control.processed());
+            run.finish(EmbeddingJobProgress.State.CANCELLED, null);
+        } catch (RuntimeException e) {
+            log.error("Embedding job failed after {} records.", run.control.processed(), e);
+            run.finish(EmbeddingJobProgress.State.FAILED, e.getMessage());
+        } catch (Error e) {
+            // E.g. OutOfMemoryError; the run must still end, or it stays active and blocks every later trigger.
+            log.error("Embedding job aborted after {} records.", run.control.processed(), e);
+            run.finish(EmbeddingJobProgress.State.FAILED, String.valueOf(e));
+            throw e;
+        }
+    }
+
+    private static final class Run {
+        private final String trigger;
+        private final EmbeddingJobControl control = new EmbeddingJobControl();
+        private final Instant startedAt = Instant.now();
+        private final long startNanos = System.nanoTime();
+        private volatile EmbeddingJobProgress.State finalState;
+        private volatile Instant finishedAt;
+        private volatile long finishNanos;
+        private volatile String error;
+
+        private Run(String trigger) {
+            this.trigger = trigger;
+        }
+
+        boolean active() {
+            return finalState == null;
+        }
+
+        void finish(EmbeddingJobProgress.State state, String error) {
+            this.error = error;
+            this.finishNanos = System.nanoTime();
+            this.finishedAt = Instant.now();
+            this.finalState = state;
+        }
+
+        EmbeddingJobProgress snapshot() {
+            EmbeddingJobProgress.State state = finalState;
+            if (state == null) {
+                state = control.paused() ? EmbeddingJobProgress.State.PAUSED : EmbeddingJobProgress.State.RUNNING;
+            }
+            long processed = control.processed();
+            long endNanos = finalState == null ? System.nanoTime() : finishNanos;
+            double elapsedSeconds = Math.max(1e-3, (endNanos - startNanos) / 1_000_000_000.0);
+            double rate = processed / elapsedSeconds;
+            long pending = control.pending();
+            Long eta = null;
+            if (pending >= 0 && finalState == null && rate > 0) {
+                eta = (long) Math.ceil(Math.max(0, pending - processed) / rate);
+            }
+            return new EmbeddingJobProgress(state, trigger, processed, pending >= 0 ? pending : null, rate, eta,
+                    startedAt, finishedAt, error);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.recommendation.embedding;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Three-stage embedding pipeline: a loader pages through pages that need an embedding, a bounded pool of
+ * embedders calls the model, and the calling thread writes finished batches. Stages are connected by bounded queues,
+ * so the loader never runs more than {@code queueCapacity} batches ahead of the embedders and the embedders
+ * block when the writer falls behind.
+ * <p>
+ * Embedders finish batches out of order, so the checkpoint only advances to the last page of the longest
+ * prefix of loaded batches that have all been written.
+ */
+@Slf4j
+class EmbeddingPipeline {
+
+    private static final Batch<PageRecord> END_OF_PAGES = new Batch<>(-1, -1, 0, List.of());
+    private static final Batch<PageEmbedding> END_OF_EMBEDDINGS = new Batch<>(-1, -1, 0, List.of());
+    private static final long STAGE_POLL_MILLIS = 500;
+
+    private final PageEmbeddingStore store;
+    private final Function<List<PageRecord>, List<PageEmbedding>> embedder;
+    private final EmbeddingJobControl control;
+    private final EmbeddingJobMetrics metrics;
+    private final int batchSize;
+    private final int embedders;
+    private final int queueCapacity;
+
+    EmbeddingPipeline(
+            PageEmbeddingStore store,
+            Function<List<PageRecord>, List<PageEmbedding>> embedder,
+            EmbeddingJobControl control,
+            EmbeddingJobMetrics metrics,
+            int batchSize,
+            EmbeddingJobProperties.Pipeline settings) {
+        this.store = store;
+        this.embedder = embedder;
+        this.control = control;
+        this.metrics = metrics;
+        this.batchSize = batchSize;
+        this.embedders = settings.embedders();
+        this.queueCapacity = settings.queueCapacity();
+    }
+
+    /**
+     * Runs the pipeline over pages with ids greater than {@code afterPageId} until the loader finds no more pages
+     * and every loaded batch has been written.
+     *
+     * @param checkpoint receives the id up to which every page has been written, each time it advances
+     * @return the number of written embeddings
+     */
+    long run(long afterPageId, LongConsumer checkpoint) {
+        BlockingQueue<Batch<PageRecord>> loaded = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Batch<PageEmbedding>> embedded = new ArrayBlockingQueue<>(queueCapacity);
+        ExecutorService executor = Executors.newFixedThreadPool(
+                embedders + 1, new CustomizableThreadFactory("embedding-pipeline-"));
+        try {
+            List<Future<?>> stages = new ArrayList<>();
+            stages.add(executor.submit(() -> load(afterPageId, loaded)));
+            for (int i = 0; i < embedders; i++) {
+                stages.add(executor.submit(() -> embed(loaded, embedded)));
+            }
+            return write(embedded, stages, checkpoint);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Embedding pipeline interrupted.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Void load(long afterPageId, BlockingQueue<Batch<PageRecord>> loaded) throws InterruptedException {
+        long lastPageId = afterPageId;
+        long sequence = 0;
+        while (true) {
+            control.awaitRunnable();
+            List<PageRecord> pages = store.loadPendingPages(lastPageId, Long.MAX_VALUE, batchSize);
+            if (pages.isEmpty()) {
+                break;
+            }
+            lastPageId = pages.get(pages.size() - 1).pageId();
+            loaded.put(new Batch<>(sequence++, lastPageId, 0, pages));
+        }
+        for (int i = 0; i < embedders; i++) {
+            loaded.put(END_OF_PAGES);
+        }
+        return null;
+    }
+
+    private Void embed(BlockingQueue<Batch<PageRecord>> loaded, BlockingQueue<Batch<PageEmbedding>> embedded)
+            throws InterruptedException {
+        while (true) {
+            Batch<PageRecord> batch = loaded.take();
+            if (batch == END_OF_PAGES) {
+                embedded.put(END_OF_EMBEDDINGS);
+                return null;
+            }
+            long embedStart = System.nanoTime();
+            List<PageEmbedding> embeddings = embedder.apply(batch.items());
+            embedded.put(new Batch<>(batch.sequence(), batch.lastPageId(), embedStart, embeddings));
+        }
+    }
+
+    private long write(
+            BlockingQueue<Batch<PageEmbedding>> embedded,
+            List<Future<?>> stages,
+            LongConsumer checkpoint) throws InterruptedException {
+        long written = 0;
+        int finishedEmbedders = 0;
+        TreeMap<Long, Long> writtenAhead = new TreeMap<>();
+        long nextSequence = 0;
+        while (finishedEmbedders < embedders) {
+            Batch<PageEmbedding> batch = embedded.poll(STAGE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (batch == null) {
+                rethrowStageFailure(stages);
+                continue;
+            }
+            if (batch == END_OF_EMBEDDINGS) {
+                finishedEmbedders++;
+                continue;
+            }
+            long batchStart = System.nanoTime();
+            int processed = store.write(batch.items());
+            control.recordProcessed(processed);
+            written += processed;
+            Duration batchDuration = Duration.ofNanos(System.nanoTime() - batchStart);
+            metrics.recordBatch(processed, System.nanoTime() - batch.embedStartNanos());
+            log.info("Embedding pipeline wrote {} records in {} ms (queued batches: {}).",
+                    processed, batchDuration.toMillis(), embedded.size());
+
+            writtenAhead.put(batch.sequence(), batch.lastPageId());
+            Long watermark = null;
+            while (writtenAhead.containsKey(nextSequence)) {
+                watermark = writtenAhead.remove(nextSequence);
+                nextSequence++;
+            }
+            if (watermark != null) {
+                checkpoint.accept(watermark);
+            }
+        }
+        rethrowStageFailure(stages);
+        return written;
+    }
+
+    private void rethrowStageFailure(List<Future<?>> stages) throws InterruptedException {
+        for (Future<?> stage : stages) {
+            if (!stage.isDone()) {
+                continue;
+            }
+            try {
+                stage.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException("Embedding pipeline stage failed.", cause);
+            }
+        }
+    }
+
+    /**
+     * {@code embedStartNanos} is when the model call for an embedded batch started, so batch throughput covers the
+     * same span as in the sequential job.
+     */
+    private record Batch<T>(long sequence, long lastPageId, long embedStartNanos, List<T> items) {
+    }
+}
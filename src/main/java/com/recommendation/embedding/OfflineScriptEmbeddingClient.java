@@ -7,12 +7,21 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Runs the configured script once per call. A single text is written to stdin as-is and the script prints a JSON
+ * array of numbers. With {@code --batch} as its only argument the script receives a JSON array of texts and prints
+ * a JSON array of vectors in the same order.
+ */
 public class OfflineScriptEmbeddingClient implements EmbeddingClient {
 
-    private static final TypeReference<List<Double>> VECTOR_TYPE = new TypeReference<>() {};
+    private static final TypeReference<List<float[]>> VECTORS_TYPE = new TypeReference<>() {};
+    private static final String BATCH_ARGUMENT = "--batch";
 
     private final EmbeddingJobProperties properties;
     private final ObjectMapper objectMapper;
@@ -23,20 +32,61 @@ public class OfflineScriptEmbeddingClient implements EmbeddingClient {
     }
 
     @Override
-    public List<Double> embed(String text) {
+    public float[] embed(String text) {
+        String output = runScript(List.of(), text.getBytes(StandardCharsets.UTF_8));
+        try {
+            return objectMapper.readValue(output, float[].class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to parse offline embedding output: " + output, e);
+        }
+    }
+
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (List<String> batch : EmbeddingBatches.partition(texts, properties.modelBatch())) {
+            byte[] input;
+            try {
+                input = objectMapper.writeValueAsBytes(batch);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to serialize offline embedding batch.", e);
+            }
+            String output = runScript(List.of(BATCH_ARGUMENT), input);
+            List<float[]> embeddings;
+            try {
+                embeddings = objectMapper.readValue(output, VECTORS_TYPE);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to parse offline embedding output: " + output, e);
+            }
+            if (embeddings.size() != batch.size()) {
+                throw new IllegalStateException("Offline embedding script returned " + embeddings.size()
+                        + " vectors for " + batch.size() + " texts.");
+            }
+            vectors.addAll(embeddings);
+        }
+        return vectors;
+    }
+
+    private String runScript(List<String> arguments, byte[] input) {
         String scriptPath = properties.offlineScriptPath();
         if (scriptPath == null || scriptPath.isBlank()) {
             throw new IllegalStateException("embedding.job.offline-script-path must be configured for OFFLINE mode.");
         }
+        List<String> command = new ArrayList<>(arguments.size() + 1);
+        command.add(scriptPath);
+        command.addAll(arguments);
         Duration timeout = properties.offlineTimeout();
         Process process;
         try {
-            process = new ProcessBuilder(scriptPath).start();
+            process = new ProcessBuilder(command).start();
         } catch (IOException e) {
             throw new IllegalStateException("Failed to start offline embedding script: " + scriptPath, e);
         }
+        // Batch output is far larger than a pipe buffer; unread, it would block the script until the timeout.
+        CompletableFuture<String> stdout = drain(process.getInputStream());
+        CompletableFuture<String> stderr = drain(process.getErrorStream());
         try (OutputStream stdin = process.getOutputStream()) {
-            stdin.write(text.getBytes(StandardCharsets.UTF_8));
+            stdin.write(input);
         } catch (IOException e) {
             process.destroyForcibly();
             throw new IllegalStateException("Failed to write input to offline embedding script.", e);
@@ -54,22 +104,31 @@ public class OfflineScriptEmbeddingClient implements EmbeddingClient {
             throw new IllegalStateException("Offline embedding script timed out after " + timeout.toMillis() + "ms.");
         }
         if (process.exitValue() != 0) {
-            String error = readOutput(process.getErrorStream());
-            throw new IllegalStateException("Offline embedding script failed: " + error);
-        }
-        String output = readOutput(process.getInputStream());
-        try {
-            return objectMapper.readValue(output, VECTOR_TYPE);
-        } catch (IOException e) {
-            throw new IllegalStateException("Failed to parse offline embedding output: " + output, e);
+            throw new IllegalStateException("Offline embedding script failed: " + awaitOutput(stderr));
         }
+        return awaitOutput(stdout);
+    }
+
+    /**
+     * Reads a stream of the script to its end on a virtual thread.
+     */
+    private static CompletableFuture<String> drain(InputStream inputStream) {
+        CompletableFuture<String> output = new CompletableFuture<>();
+        Thread.ofVirtual().name("offline-embedding-output").start(() -> {
+            try (inputStream) {
+                output.complete(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8).trim());
+            } catch (IOException e) {
+                output.completeExceptionally(e);
+            }
+        });
+        return output;
     }
 
-    private String readOutput(InputStream inputStream) {
+    private static String awaitOutput(CompletableFuture<String> output) {
         try {
-            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8).trim();
-        } catch (IOException e) {
-            throw new IllegalStateException("Failed to read offline embedding output.", e);
+            return output.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Failed to read offline embedding output.", e.getCause());
         }
     }
 }
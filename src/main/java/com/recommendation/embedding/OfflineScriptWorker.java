@@ -0,0 +1,139 @@
+package com.recommendation.embedding;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One long-lived embedding script process speaking newline-delimited JSON over stdin/stdout. A worker serves a
+ * single request at a time; callers get exclusive access through {@link OfflineWorkerEmbeddingClient}'s pool.
+ * A worker whose process exited, or that timed out and was killed, is restarted on its next request.
+ */
+@Slf4j
+final class OfflineScriptWorker {
+
+    // Compared by identity: marks the end of the script's stdout.
+    private static final String END_OF_STREAM = new String("<eof>");
+
+    private final String name;
+    private final List<String> command;
+    private Process process;
+    private BufferedWriter stdin;
+    private BlockingQueue<String> responses;
+    private int starts;
+
+    OfflineScriptWorker(String name, List<String> command) {
+        this.name = name;
+        this.command = List.copyOf(command);
+    }
+
+    /**
+     * Sends one request line and waits for one response line.
+     *
+     * @throws IllegalStateException if the process cannot be started, crashes, or does not answer within
+     *                               {@code timeout}; the process is discarded in each case
+     */
+    String call(String requestLine, Duration timeout) {
+        ensureRunning();
+        try {
+            stdin.write(requestLine);
+            stdin.newLine();
+            stdin.flush();
+        } catch (IOException e) {
+            destroy();
+            throw new IllegalStateException("Failed to write to offline embedding worker " + name + ".", e);
+        }
+        String response;
+        try {
+            response = responses.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            destroy();
+            throw new IllegalStateException("Offline embedding worker " + name + " interrupted.", e);
+        }
+        if (response == null) {
+            destroy();
+            throw new IllegalStateException("Offline embedding worker " + name + " timed out after "
+                    + timeout.toMillis() + "ms.");
+        }
+        if (response == END_OF_STREAM) {
+            Integer exitCode = process.isAlive() ? null : process.exitValue();
+            destroy();
+            throw new IllegalStateException("Offline embedding worker " + name + " exited (exit code "
+                    + exitCode + ").");
+        }
+        return response;
+    }
+
+    void destroy() {
+        if (process == null) {
+            return;
+        }
+        process.destroyForcibly();
+        process = null;
+        stdin = null;
+        responses = null;
+    }
+
+    private void ensureRunning() {
+        if (process != null && process.isAlive()) {
+            return;
+        }
+        if (process != null) {
+            log.warn("Offline embedding worker {} died (exit code {}); restarting.", name, process.exitValue());
+            destroy();
+        }
+        Process started;
+        try {
+            started = new ProcessBuilder(command).start();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to start offline embedding worker: " + command, e);
+        }
+        starts++;
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        Thread.ofVirtual().name(name + "-stdout").start(() -> readLines(started, lines));
+        Thread.ofVirtual().name(name + "-stderr").start(() -> drainErrors(started));
+        process = started;
+        stdin = new BufferedWriter(new OutputStreamWriter(started.getOutputStream(), StandardCharsets.UTF_8));
+        responses = lines;
+        log.info("Started offline embedding worker {} (pid {}, start #{}).", name, started.pid(), starts);
+    }
+
+    private void readLines(Process source, BlockingQueue<String> lines) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(source.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    lines.add(line);
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Offline embedding worker {} stdout closed: {}", name, e.getMessage());
+        } finally {
+            lines.add(END_OF_STREAM);
+        }
+    }
+
+    private void drainErrors(Process source) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(source.getErrorStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                log.warn("Offline embedding worker {}: {}", name, line);
+            }
+        } catch (IOException e) {
+            log.debug("Offline embedding worker {} stderr closed: {}", name, e.getMessage());
+        }
+    }
+}
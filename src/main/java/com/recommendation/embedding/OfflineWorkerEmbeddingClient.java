@@ -0,0 +1,118 @@
+package com.recommendation.embedding;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps {@code embedding.job.offline-workers} script processes alive and talks to them over newline-delimited
+ * JSON. The script is started with {@code --worker} and must answer every request line
+ * <pre>{"id":1,"texts":["...","..."]}</pre>
+ * with exactly one response line
+ * <pre>{"id":1,"embeddings":[[0.1,...],[0.2,...]]}</pre>
+ * or {@code {"id":1,"error":"..."}}. Processes are started lazily on first use.
+ */
+public class OfflineWorkerEmbeddingClient implements EmbeddingClient, AutoCloseable {
+
+    private static final String WORKER_ARGUMENT = "--worker";
+
+    private final EmbeddingJobProperties properties;
+    private final ObjectMapper objectMapper;
+    private final List<OfflineScriptWorker> workers;
+    private final BlockingQueue<OfflineScriptWorker> idleWorkers;
+    private final AtomicLong requestIds = new AtomicLong();
+
+    public OfflineWorkerEmbeddingClient(EmbeddingJobProperties properties, ObjectMapper objectMapper) {
+        String scriptPath = properties.offlineScriptPath();
+        if (scriptPath == null || scriptPath.isBlank()) {
+            throw new IllegalStateException(
+                    "embedding.job.offline-script-path must be configured for OFFLINE_WORKER mode.");
+        }
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.workers = new ArrayList<>(properties.offlineWorkers());
+        this.idleWorkers = new ArrayBlockingQueue<>(properties.offlineWorkers());
+        for (int i = 0; i < properties.offlineWorkers(); i++) {
+            OfflineScriptWorker worker = new OfflineScriptWorker(
+                    "embedding-worker-" + i, List.of(scriptPath, WORKER_ARGUMENT));
+            workers.add(worker);
+            idleWorkers.add(worker);
+        }
+    }
+
+    @Override
+    public float[] embed(String text) {
+        return embedAll(List.of(text)).get(0);
+    }
+
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (List<String> batch : EmbeddingBatches.partition(texts, properties.modelBatch())) {
+            vectors.addAll(request(batch));
+        }
+        return vectors;
+    }
+
+    @Override
+    public void close() {
+        for (OfflineScriptWorker worker : workers) {
+            worker.destroy();
+        }
+    }
+
+    private List<float[]> request(List<String> texts) {
+        long id = requestIds.incrementAndGet();
+        String requestLine;
+        try {
+            requestLine = objectMapper.writeValueAsString(new WorkerRequest(id, texts));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize offline embedding request.", e);
+        }
+        OfflineScriptWorker worker = borrow();
+        String responseLine;
+        try {
+            responseLine = worker.call(requestLine, properties.offlineTimeout());
+        } finally {
+            idleWorkers.add(worker);
+        }
+        WorkerResponse response;
+        try {
+            response = objectMapper.readValue(responseLine, WorkerResponse.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to parse offline embedding output: " + responseLine, e);
+        }
+        if (response.id() != id) {
+            throw new IllegalStateException("Offline embedding worker answered request " + response.id()
+                    + " while waiting for " + id + ".");
+        }
+        if (response.error() != null) {
+            throw new IllegalStateException("Offline embedding worker failed: " + response.error());
+        }
+        if (response.embeddings() == null || response.embeddings().size() != texts.size()) {
+            throw new IllegalStateException("Offline embedding worker returned "
+                    + (response.embeddings() == null ? 0 : response.embeddings().size())
+                    + " vectors for " + texts.size() + " texts.");
+        }
+        return response.embeddings();
+    }
+
+    private OfflineScriptWorker borrow() {
+        try {
+            return idleWorkers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an offline embedding worker.", e);
+        }
+    }
+
+    private record WorkerRequest(long id, List<String> texts) {
+    }
+
+    private record WorkerResponse(long id, List<float[]> embeddings, String error) {
+    }
+}
@@ -0,0 +1,4 @@
+package com.recommendation.embedding;
+
+public record PageEmbedding(long pageId, float[] vector, String contentHash) {
+}
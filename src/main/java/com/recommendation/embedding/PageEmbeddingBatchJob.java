@@ -1,114 +1,170 @@
 package com.recommendation.embedding;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.StringJoiner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.ApplicationArguments;
-import org.springframework.boot.ApplicationRunner;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
 @Component
 @Slf4j
-public class PageEmbeddingBatchJob implements ApplicationRunner {
+public class PageEmbeddingBatchJob {
 
-    private final JdbcTemplate jdbcTemplate;
+    private final PageEmbeddingStore store;
+    private final EmbeddingCheckpointStore checkpointStore;
     private final EmbeddingClient embeddingClient;
     private final EmbeddingJobProperties properties;
+    private final EmbeddingJobMetrics metrics;
 
-    public PageEmbeddingBatchJob(JdbcTemplate jdbcTemplate, EmbeddingClient embeddingClient, EmbeddingJobProperties properties) {
-        this.jdbcTemplate = jdbcTemplate;
+    public PageEmbeddingBatchJob(
+            PageEmbeddingStore store,
+            EmbeddingCheckpointStore checkpointStore,
+            EmbeddingClient embeddingClient,
+            EmbeddingJobProperties properties,
+            EmbeddingJobMetrics metrics) {
+        this.store = store;
+        this.checkpointStore = checkpointStore;
         this.embeddingClient = embeddingClient;
         this.properties = properties;
+        this.metrics = metrics;
     }
 
-    @Override
-    public void run(ApplicationArguments args) {
-        if (!properties.enabled()) {
-            log.info("Embedding job disabled (embedding.job.enabled=false).");
-            return;
+    /**
+     * Runs one embedding pass until no page is pending. Checks {@code control} between batches, so the run can be
+     * paused, resumed and cancelled; a cancelled run throws {@link java.util.concurrent.CancellationException}
+     * and keeps its checkpoint.
+     */
+    public long run(EmbeddingJobControl control) {
+        store.ensureSchema();
+        checkpointStore.ensureSchema();
+        if (properties.mode() == EmbeddingJobProperties.Mode.MISSING && !properties.shards().enabled()) {
+            control.setPending(store.countPendingPages(checkpointStore.load()));
         }
-        long totalProcessed = 0;
         long overallStart = System.nanoTime();
+        long totalProcessed;
+        if (properties.shards().enabled()) {
+            totalProcessed = runSharded(control);
+        } else {
+            long afterPageId = checkpointStore.load();
+            if (afterPageId != EmbeddingCheckpointStore.NO_CHECKPOINT) {
+                log.info("Embedding job resuming after page {}.", afterPageId);
+            }
+            if (properties.pipeline().enabled()) {
+                log.info("Embedding job running pipelined with {} embedders and queue capacity {}.",
+                        properties.pipeline().embedders(), properties.pipeline().queueCapacity());
+                totalProcessed = new EmbeddingPipeline(
+                        store, this::embedBatch, control, metrics, properties.batchSize(), properties.pipeline())
+                        .run(afterPageId, checkpointStore::save);
+            } else {
+                totalProcessed = runSequential(afterPageId, Long.MAX_VALUE, checkpointStore::save, control);
+            }
+            checkpointStore.clear();
+        }
+        Duration overallDuration = Duration.ofNanos(System.nanoTime() - overallStart);
+        log.info("Embedding job finished. Total records: {}. Total latency: {} ms. Mode: {}. Write mode: {}.",
+                totalProcessed, overallDuration.toMillis(), properties.mode(), properties.writeMode());
+        return totalProcessed;
+    }
+
+    private long runSequential(
+            long afterPageId,
+            long upToPageId,
+            LongConsumer checkpoint,
+            EmbeddingJobControl control) {
+        long totalProcessed = 0;
+        long lastPageId = afterPageId;
         while (true) {
-            List<PageRecord> batch = loadMissingEmbeddings(properties.batchSize());
+            control.awaitRunnable();
+            List<PageRecord> batch = store.loadPendingPages(lastPageId, upToPageId, properties.batchSize());
             if (batch.isEmpty()) {
                 break;
             }
+            lastPageId = batch.get(batch.size() - 1).pageId();
             long batchStart = System.nanoTime();
-            int processed = processBatch(batch);
+            int processed = store.write(embedBatch(batch));
+            checkpoint.accept(lastPageId);
+            control.recordProcessed(processed);
             totalProcessed += processed;
             Duration batchDuration = Duration.ofNanos(System.nanoTime() - batchStart);
+            metrics.recordBatch(processed, batchDuration.toNanos());
             log.info("Embedding batch processed {} records in {} ms.", processed, batchDuration.toMillis());
         }
-        Duration overallDuration = Duration.ofNanos(System.nanoTime() - overallStart);
-        log.info("Embedding job finished. Total records: {}. Total latency: {} ms.", totalProcessed, overallDuration.toMillis());
+        return totalProcessed;
     }
 
-    private List<PageRecord> loadMissingEmbeddings(int batchSize) {
-        String sql = """
-                SELECT p.%s AS page_id, p.%s AS content
-                FROM %s p
-                LEFT JOIN %s e
-                  ON p.%s = e.%s
-                WHERE e.%s IS NULL
-                ORDER BY p.%s
-                LIMIT ?
-                """.formatted(
-                properties.pageIdColumn(),
-                properties.pageContentColumn(),
-                properties.pageTable(),
-                properties.embeddingTable(),
-                properties.pageIdColumn(),
-                properties.embeddingPageIdColumn(),
-                properties.embeddingPageIdColumn(),
-                properties.pageIdColumn()
-        );
-        return jdbcTemplate.query(
-                sql,
-                (rs, rowNum) -> new PageRecord(rs.getLong("page_id"), rs.getString("content")),
-                batchSize
-        );
-    }
-
-    private int processBatch(List<PageRecord> records) {
-        String upsertSql = """
-                INSERT INTO %s (%s, %s)
-                VALUES (?, ?::vector)
-                ON CONFLICT (%s)
-                DO UPDATE SET %s = EXCLUDED.%s
-                """.formatted(
-                properties.embeddingTable(),
-                properties.embeddingPageIdColumn(),
-                properties.embeddingVectorColumn(),
-                properties.embeddingPageIdColumn(),
-                properties.embeddingVectorColumn(),
-                properties.embeddingVectorColumn()
-        );
-        int expectedDimension = properties.expectedDimension();
-        int processed = 0;
-        for (PageRecord record : records) {
-            List<Double> vector = embeddingClient.embed(record.content());
-            if (expectedDimension > 0 && vector.size() != expectedDimension) {
-                log.warn("Embedding dimension mismatch for page {}. Expected {}, got {}.",
-                        record.pageId(), expectedDimension, vector.size());
+    /**
+     * Splits the id range into shards and lets {@code embedding.job.shards.workers} local workers claim them until
+     * none is left. Workers on other nodes running the same job name share the shards.
+     */
+    private long runSharded(EmbeddingJobControl control) {
+        checkpointStore.planShards(store.pageIdRange());
+        int workers = properties.shards().workers();
+        log.info("Embedding job running {} shards with {} local workers.", properties.shards().count(), workers);
+        ExecutorService executor = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("embedding-shard-"));
+        try {
+            List<Future<Long>> results = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                results.add(executor.submit(() -> processShards(control)));
+            }
+            long totalProcessed = 0;
+            for (Future<Long> result : results) {
+                totalProcessed += result.get();
             }
-            String vectorLiteral = toVectorLiteral(vector);
-            processed += jdbcTemplate.update(upsertSql, record.pageId(), vectorLiteral);
+            return totalProcessed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Embedding job interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Embedding shard worker failed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
         }
-        return processed;
     }
 
-    private String toVectorLiteral(List<Double> vector) {
-        StringJoiner joiner = new StringJoiner(",", "[", "]");
-        for (Double value : vector) {
-            joiner.add(String.valueOf(value));
+    private long processShards(EmbeddingJobControl control) {
+        long totalProcessed = 0;
+        EmbeddingCheckpointStore.Shard shard;
+        while ((shard = checkpointStore.claimShard()) != null) {
+            int shardId = shard.shardId();
+            log.info("Embedding shard {} claimed, resuming after page {}.", shardId, shard.lastPageId());
+            totalProcessed += runSequential(shard.lastPageId(), shard.rangeEnd(),
+                    lastPageId -> checkpointStore.saveShard(shardId, lastPageId), control);
+            checkpointStore.completeShard(shardId);
         }
-        return joiner.toString();
+        return totalProcessed;
     }
 
-    private record PageRecord(long pageId, String content) {
+    private List<PageEmbedding> embedBatch(List<PageRecord> records) {
+        int expectedDimension = properties.expectedDimension();
+        List<String> texts = new ArrayList<>(records.size());
+        for (PageRecord record : records) {
+            texts.add(record.content());
+        }
+        List<float[]> vectors = metrics.recordModelCall(texts.size(), () -> embeddingClient.embedAll(texts));
+        if (vectors.size() != records.size()) {
+            throw new IllegalStateException("Embedding client returned " + vectors.size()
+                    + " vectors for " + records.size() + " pages.");
+        }
+        List<PageEmbedding> embeddings = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            PageRecord record = records.get(i);
+            float[] vector = vectors.get(i);
+            if (expectedDimension > 0 && vector.length != expectedDimension) {
+                log.warn("Embedding dimension mismatch for page {}. Expected {}, got {}.",
+                        record.pageId(), expectedDimension, vector.length);
+            }
+            embeddings.add(new PageEmbedding(record.pageId(), vector, record.contentHash()));
+        }
+        return embeddings;
     }
 }
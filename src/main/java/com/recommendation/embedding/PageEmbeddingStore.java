@@ -0,0 +1,214 @@
+package com.recommendation.embedding;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Component
+@Slf4j
+public class PageEmbeddingStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EmbeddingJobProperties properties;
+    private final String loadPendingSql;
+    private final String upsertSql;
+    private final EmbeddingCopyLoader copyLoader;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EmbeddingJobMetrics metrics;
+
+    public PageEmbeddingStore(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            EmbeddingJobProperties properties,
+            ApplicationEventPublisher eventPublisher,
+            EmbeddingJobMetrics metrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+        this.loadPendingSql = buildLoadPendingSql();
+        this.upsertSql = buildUpsertSql();
+        this.copyLoader = new EmbeddingCopyLoader(jdbcTemplate, new TransactionTemplate(transactionManager), properties);
+    }
+
+    /**
+     * Adds the change-tracking columns to the embedding table if an older schema lacks them.
+     */
+    void ensureSchema() {
+        jdbcTemplate.execute("""
+                ALTER TABLE %s
+                  ADD COLUMN IF NOT EXISTS %s text,
+                  ADD COLUMN IF NOT EXISTS %s text,
+                  ADD COLUMN IF NOT EXISTS %s timestamptz
+                """.formatted(
+                properties.embeddingTable(),
+                properties.embeddingHashColumn(),
+                properties.embeddingModelColumn(),
+                properties.embeddingUpdatedAtColumn()));
+    }
+
+    /**
+     * Loads the next pages that need an embedding with {@code afterPageId < id <= upToPageId}, in id order.
+     * Each call is a keyset range scan on the page id, so its cost does not grow as the backfill advances.
+     * In {@link EmbeddingJobProperties.Mode#INCREMENTAL} mode, pages whose stored content hash and model id still
+     * match are filtered out by the query and never reach the model.
+     */
+    List<PageRecord> loadPendingPages(long afterPageId, long upToPageId, int batchSize) {
+        RowMapper<PageRecord> rowMapper = (rs, rowNum) -> new PageRecord(
+                rs.getLong("page_id"), rs.getString("content"), rs.getString("content_hash"));
+        if (properties.mode() == EmbeddingJobProperties.Mode.INCREMENTAL) {
+            return jdbcTemplate.query(loadPendingSql, rowMapper, properties.modelId(), afterPageId, upToPageId, batchSize);
+        }
+        return jdbcTemplate.query(loadPendingSql, rowMapper, afterPageId, upToPageId, batchSize);
+    }
+
+    /**
+     * Counts pages after {@code afterPageId} that have no embedding yet. Used once per run to estimate progress.
+     */
+    long countPendingPages(long afterPageId) {
+        String sql = """
+                SELECT count(*)
+                FROM %s p
+                LEFT JOIN %s e
+                  ON p.%s = e.%s
+                WHERE e.%s IS NULL
+                  AND p.%s > ?
+                """.formatted(
+                properties.pageTable(),
+                properties.embeddingTable(),
+                properties.pageIdColumn(),
+                properties.embeddingPageIdColumn(),
+                properties.embeddingPageIdColumn(),
+                properties.pageIdColumn()
+        );
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, afterPageId);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Returns the smallest and largest page id, or {@code null} if the page table is empty.
+     */
+    long[] pageIdRange() {
+        String sql = "SELECT MIN(%s) AS min_id, MAX(%s) AS max_id FROM %s".formatted(
+                properties.pageIdColumn(), properties.pageIdColumn(), properties.pageTable());
+        return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> {
+            long min = rs.getLong("min_id");
+            return rs.wasNull() ? null : new long[] {min, rs.getLong("max_id")};
+        });
+    }
+
+    /**
+     * Writes the given embeddings, with their content hash and the configured model id, using the configured
+     * {@link EmbeddingJobProperties.WriteMode} and returns the number of affected rows. Publishes a
+     * {@link PageEmbeddingsWrittenEvent} once the batch is written.
+     */
+    int write(List<PageEmbedding> embeddings) {
+        if (embeddings.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        int written = metrics.recordWrite(() -> switch (properties.writeMode()) {
+            case UPSERT -> upsert(embeddings);
+            case COPY -> copyLoader.write(embeddings);
+        });
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        log.debug("Embedding write mode={} rows={} latencyMs={} rowsPerSecond={}",
+                properties.writeMode(), written, elapsedNanos / 1_000_000, written * 1_000_000_000L / elapsedNanos);
+        eventPublisher.publishEvent(new PageEmbeddingsWrittenEvent(List.copyOf(embeddings)));
+        return written;
+    }
+
+    private int upsert(List<PageEmbedding> embeddings) {
+        int[] counts = jdbcTemplate.batchUpdate(upsertSql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                if (i == 0) {
+                    PgVector.enableBinarySend(ps.getConnection());
+                }
+                PageEmbedding embedding = embeddings.get(i);
+                ps.setLong(1, embedding.pageId());
+                ps.setObject(2, new PgVector(embedding.vector()));
+                ps.setString(3, embedding.contentHash());
+                ps.setString(4, properties.modelId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return embeddings.size();
+            }
+        });
+        int written = 0;
+        for (int count : counts) {
+            // Drivers may report SUCCESS_NO_INFO (-2) for batched statements; count those as one row.
+            written += count >= 0 ? count : 1;
+        }
+        return written;
+    }
+
+    private String buildLoadPendingSql() {
+        String pendingCondition = "e.%s IS NULL".formatted(properties.embeddingPageIdColumn());
+        if (properties.mode() == EmbeddingJobProperties.Mode.INCREMENTAL) {
+            String contentChanged = "e.%s IS DISTINCT FROM md5(p.%s)".formatted(
+                    properties.embeddingHashColumn(), properties.pageContentColumn());
+            String pageUpdatedAtColumn = properties.pageUpdatedAtColumn();
+            if (pageUpdatedAtColumn != null && !pageUpdatedAtColumn.isBlank()) {
+                // Only hash pages touched since they were embedded; the hash still rules out no-op updates.
+                contentChanged = "(p.%s > e.%s AND %s)".formatted(
+                        pageUpdatedAtColumn, properties.embeddingUpdatedAtColumn(), contentChanged);
+            }
+            pendingCondition = "(%s OR e.%s IS DISTINCT FROM ? OR %s)".formatted(
+                    pendingCondition, properties.embeddingModelColumn(), contentChanged);
+        }
+        return """
+                SELECT p.%s AS page_id, p.%s AS content, md5(p.%s) AS content_hash
+                FROM %s p
+                LEFT JOIN %s e
+                  ON p.%s = e.%s
+                WHERE %s
+                  AND p.%s > ?
+                  AND p.%s <= ?
+                ORDER BY p.%s
+                LIMIT ?
+                """.formatted(
+                properties.pageIdColumn(),
+                properties.pageContentColumn(),
+                properties.pageContentColumn(),
+                properties.pageTable(),
+                properties.embeddingTable(),
+                properties.pageIdColumn(),
+                properties.embeddingPageIdColumn(),
+                pendingCondition,
+                properties.pageIdColumn(),
+                properties.pageIdColumn(),
+                properties.pageIdColumn()
+        );
+    }
+
+    private String buildUpsertSql() {
+        return """
+                INSERT INTO %1$s (%2$s, %3$s, %4$s, %5$s, %6$s)
+                VALUES (?, ?, ?, ?, now())
+                ON CONFLICT (%2$s)
+                DO UPDATE SET %3$s = EXCLUDED.%3$s,
+                              %4$s = EXCLUDED.%4$s,
+                              %5$s = EXCLUDED.%5$s,
+                              %6$s = EXCLUDED.%6$s
+                """.formatted(
+                properties.embeddingTable(),
+                properties.embeddingPageIdColumn(),
+                properties.embeddingVectorColumn(),
+                properties.embeddingHashColumn(),
+                properties.embeddingModelColumn(),
+                properties.embeddingUpdatedAtColumn()
+        );
+    }
+}
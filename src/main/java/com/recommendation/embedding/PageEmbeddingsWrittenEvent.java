@@ -0,0 +1,10 @@
+package com.recommendation.embedding;
+
+import java.util.List;
+
+/**
+ * Published by {@link PageEmbeddingStore} after a batch of embeddings has been committed, so in-process consumers
+ * such as the ANN index can apply it without re-reading the table.
+ */
+public record PageEmbeddingsWrittenEvent(List<PageEmbedding> embeddings) {
+}
@@ -0,0 +1,4 @@
+package com.recommendation.embedding;
+
+record PageRecord(long pageId, String content, String contentHash) {
+}
@@ -0,0 +1,151 @@
+package com.recommendation.embedding;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.Oid;
+import org.postgresql.util.PGBinaryObject;
+import org.postgresql.util.PGobject;
+
+/**
+ * A pgvector {@code vector} parameter backed by a primitive {@code float[]}.
+ * <p>
+ * PgJDBC sends it in pgvector's binary wire format ({@code int16 dim, int16 unused, float4[dim]}) when binary
+ * transfer is enabled for the type's OID, see {@link #enableBinarySend}; otherwise it falls back to the compact
+ * text form. Either way the statement does not need a {@code ?::vector} cast.
+ */
+public final class PgVector extends PGobject implements PGBinaryObject {
+
+    private static final String TYPE = "vector";
+    private static final int HEADER_BYTES = 4;
+
+    private float[] values;
+
+    public PgVector() {
+        this.type = TYPE;
+        this.values = new float[0];
+    }
+
+    public PgVector(float[] values) {
+        this.type = TYPE;
+        this.values = values;
+    }
+
+    /**
+     * Lets {@code connection} send {@code vector} parameters in binary. The extension's OID differs per database, so
+     * it is looked up through the driver's per-connection type cache rather than configured with
+     * {@code binaryTransferEnable}; calling this again on the same connection is cheap.
+     */
+    public static void enableBinarySend(Connection connection) throws SQLException {
+        BaseConnection pgConnection = connection.unwrap(BaseConnection.class);
+        int oid = pgConnection.getTypeInfo().getPGType(TYPE);
+        if (oid != Oid.UNSPECIFIED) {
+            pgConnection.getQueryExecutor().addBinarySendOid(oid);
+        }
+    }
+
+    public float[] toArray() {
+        return values;
+    }
+
+    @Override
+    public String getValue() {
+        return toLiteral(values);
+    }
+
+    @Override
+    public void setValue(String value) throws SQLException {
+        this.values = value == null ? null : parse(value);
+    }
+
+    @Override
+    public void setByteValue(byte[] bytes, int offset) throws SQLException {
+        int dimension = ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+        float[] decoded = new float[dimension];
+        int position = offset + HEADER_BYTES;
+        for (int i = 0; i < dimension; i++) {
+            int bits = ((bytes[position] & 0xFF) << 24)
+                    | ((bytes[position + 1] & 0xFF) << 16)
+                    | ((bytes[position + 2] & 0xFF) << 8)
+                    | (bytes[position + 3] & 0xFF);
+            decoded[i] = Float.intBitsToFloat(bits);
+            position += Float.BYTES;
+        }
+        this.values = decoded;
+    }
+
+    @Override
+    public int lengthInBytes() {
+        return values == null ? 0 : HEADER_BYTES + values.length * Float.BYTES;
+    }
+
+    @Override
+    public void toBytes(byte[] bytes, int offset) {
+        writeBinary(values, bytes, offset);
+    }
+
+    /**
+     * Writes {@code vector} in pgvector's binary format ({@code vector_send}) starting at {@code offset}.
+     */
+    public static void writeBinary(float[] vector, byte[] bytes, int offset) {
+        int dimension = vector.length;
+        bytes[offset] = (byte) (dimension >>> 8);
+        bytes[offset + 1] = (byte) dimension;
+        bytes[offset + 2] = 0;
+        bytes[offset + 3] = 0;
+        int position = offset + HEADER_BYTES;
+        for (float value : vector) {
+            int bits = Float.floatToIntBits(value);
+            bytes[position] = (byte) (bits >>> 24);
+            bytes[position + 1] = (byte) (bits >>> 16);
+            bytes[position + 2] = (byte) (bits >>> 8);
+            bytes[position + 3] = (byte) bits;
+            position += Float.BYTES;
+        }
+    }
+
+    public static String toLiteral(float[] vector) {
+        if (vector == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(vector.length * 10 + 2).append('[');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(vector[i]);
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * Parses pgvector's text form, e.g. {@code [0.1,0.2,0.3]}.
+     */
+    public static float[] parse(String literal) {
+        String trimmed = literal.trim();
+        if (trimmed.length() < 2 || trimmed.charAt(0) != '[' || trimmed.charAt(trimmed.length() - 1) != ']') {
+            throw new IllegalArgumentException("Not a vector literal: " + literal);
+        }
+        if (trimmed.length() == 2) {
+            return new float[0];
+        }
+        int count = 1;
+        for (int i = 1; i < trimmed.length() - 1; i++) {
+            if (trimmed.charAt(i) == ',') {
+                count++;
+            }
+        }
+        float[] vector = new float[count];
+        int start = 1;
+        for (int i = 0; i < count; i++) {
+            int end = trimmed.indexOf(',', start);
+            if (end < 0) {
+                end = trimmed.length() - 1;
+            }
+            vector[i] = Float.parseFloat(trimmed.substring(start, end).trim());
+            start = end + 1;
+        }
+        return vector;
+    }
+}
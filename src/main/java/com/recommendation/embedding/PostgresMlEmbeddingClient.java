@@ -1,27 +1,35 @@
 package com.recommendation.embedding;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.ai.embedding.EmbeddingModel;
 public class PostgresMlEmbeddingClient implements EmbeddingClient {
 
     private final EmbeddingModel embeddingModel;
+    private final EmbeddingJobProperties.ModelBatch modelBatch;
 
-    public PostgresMlEmbeddingClient(EmbeddingModel embeddingModel) {
+    public PostgresMlEmbeddingClient(EmbeddingModel embeddingModel, EmbeddingJobProperties.ModelBatch modelBatch) {
         this.embeddingModel = embeddingModel;
+        this.modelBatch = modelBatch;
     }
 
     @Override
-    public List<Double> embed(String text) {
-        float[] vector = embeddingModel.embed(text);
-        return toList(vector);
+    public float[] embed(String text) {
+        return embeddingModel.embed(text);
     }
 
-    private List<Double> toList(float[] vector) {
-        Double[] values = new Double[vector.length];
-        for (int i = 0; i < vector.length; i++) {
-            values[i] = (double) vector[i];
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (List<String> batch : EmbeddingBatches.partition(texts, modelBatch)) {
+            List<float[]> embeddings = embeddingModel.embed(batch);
+            if (embeddings.size() != batch.size()) {
+                throw new IllegalStateException("Embedding model returned " + embeddings.size()
+                        + " vectors for " + batch.size() + " texts.");
+            }
+            vectors.addAll(embeddings);
         }
-        return List.of(values);
+        return vectors;
     }
 }
@@ -0,0 +1,385 @@
+package com.recommendation.neighbors;
+
+import com.recommendation.cache.RecommendationCacheInvalidator;
+import com.recommendation.rerank.VectorKernels;
+import com.zaxxer.hikari.HikariDataSource;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+import javax.sql.DataSource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Fills {@code item_recommendations} with the {@code k} nearest pages of every embedded page, scored like semantic
+ * search as {@code 1 / (1 + L2 distance)}.
+ * <p>
+ * Pages are split into partitions of {@code partitionSize} that run in parallel: with {@code PGVECTOR} each page is
+ * one HNSW query, at most {@code parallelism} at a time on virtual threads; with {@code IN_MEMORY} every embedding is
+ * loaded once and each partition scores its pages against all others in tiles of {@code blockSize} vectors on a
+ * fork-join pool. Partitions write their rows to the staging table in bulk as they finish, and the result is
+ * published in one transaction.
+ * <p>
+ * Incremental runs (the default once a full run has completed) only recompute pages embedded since the previous run
+ * started and the pages closest to them, whose neighbour lists are the ones a new page can enter. Runs start on the
+ * {@code recommendation.neighbors.schedule} cron or on demand, only where {@code recommendation.neighbors.enabled} is
+ * set. Each run holds a Postgres advisory lock on the staging table from start to publish, so at most one is active
+ * across all nodes sharing the database.
+ */
+@Service
+@Slf4j
+public class ItemNeighborJob implements DisposableBean {
+
+    private final ItemNeighborStore store;
+    private final NeighborProperties properties;
+    private final RecommendationCacheInvalidator cacheInvalidator;
+    private final VectorKernels kernels = VectorKernels.best();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final int parallelism;
+    private volatile boolean schemaReady;
+
+    public ItemNeighborJob(
+            ItemNeighborStore store,
+            NeighborProperties properties,
+            RecommendationCacheInvalidator cacheInvalidator,
+            DataSource dataSource) {
+        this.store = store;
+        this.properties = properties;
+        this.cacheInvalidator = cacheInvalidator;
+        this.parallelism = properties.effectiveParallelism(
+                dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 0);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (properties.enabled() && properties.runOnStartup()) {
+            trigger(false);
+        }
+    }
+
+    @Scheduled(cron = "${recommendation.neighbors.schedule:-}")
+    public void onSchedule() {
+        if (properties.enabled()) {
+            trigger(false);
+        }
+    }
+
+    /**
+     * Starts a run unless the job is disabled on this node or a run is already active here or on another node.
+     *
+     * @param full recompute every page even if an incremental run would do
+     * @return {@code true} if a new run was started
+     */
+    public boolean trigger(boolean full) {
+        if (!properties.enabled()) {
+            log.info("Item neighbour job disabled (recommendation.neighbors.enabled=false); ignoring trigger.");
+            return false;
+        }
+        if (!running.compareAndSet(false, true)) {
+            log.info("Item neighbour job already running; ignoring trigger.");
+            return false;
+        }
+        ItemNeighborStore.RunLock lock;
+        try {
+            lock = store.tryLock();
+        } catch (RuntimeException e) {
+            running.set(false);
+            log.error("Item neighbour job could not take its run lock.", e);
+            return false;
+        }
+        if (lock == null) {
+            running.set(false);
+            log.info("Item neighbour job running on another node; ignoring trigger.");
+            return false;
+        }
+        executor.execute(() -> {
+            try (lock) {
+                run(full);
+            } catch (RuntimeException e) {
+                log.error("Item neighbour job failed.", e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    void run(boolean full) {
+        if (!schemaReady) {
+            store.ensureSchema();
+            schemaReady = true;
+        }
+        long start = System.nanoTime();
+        Instant startedAt = Instant.now();
+        Instant lastStartedAt = full ? null : store.lastStartedAt();
+        store.clearStaging();
+        ItemNeighborStore.EmbeddingMatrix matrix = properties.method() == NeighborProperties.Method.IN_MEMORY
+                ? store.loadMatrix(properties.writeBatchSize())
+                : null;
+        long[] allItems = matrix != null ? matrix.ids() : store.itemIds();
+
+        long[] items = allItems;
+        boolean incremental = false;
+        if (lastStartedAt != null) {
+            long[] changed = store.embeddedSince(lastStartedAt.minus(properties.catchUpMargin()));
+            if (changed.length == 0) {
+                store.saveStartedAt(startedAt);
+                log.info("Item neighbour job: no pages embedded since {}; nothing to do.", lastStartedAt);
+                return;
+            }
+            long[] affected = affectedBy(changed, matrix);
+            if (affected.length <= properties.fullRebuildRatio() * allItems.length) {
+                items = affected;
+                incremental = true;
+            } else {
+                log.info("Item neighbour job: {} of {} pages affected; running a full rebuild.",
+                        affected.length, allItems.length);
+            }
+        }
+
+        long rows = compute(items, matrix);
+        if (incremental) {
+            store.replaceItems(items);
+        } else {
+            store.replaceAll();
+        }
+        store.saveStartedAt(startedAt);
+        cacheInvalidator.invalidatePageRecommendations();
+        log.info("Item neighbour job ({}, {}) wrote {} rows for {} pages in {} ms.",
+                incremental ? "incremental" : "full", properties.method(), rows, items.length,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Pages whose neighbour lists may change because {@code changed} were (re-)embedded: the changed pages and
+     * their {@code incrementalFanout} nearest pages.
+     */
+    private long[] affectedBy(long[] changed, ItemNeighborStore.EmbeddingMatrix matrix) {
+        LongStream.Builder affected = LongStream.builder();
+        // Partitions report concurrently and the builder is not thread-safe.
+        forEachNeighborList(changed, matrix, properties.incrementalFanout(), (pageId, neighbors) -> {
+            synchronized (affected) {
+                affected.add(pageId);
+                for (ItemNeighborStore.Neighbor neighbor : neighbors) {
+                    affected.add(neighbor.pageId());
+                }
+            }
+        });
+        return affected.build().sorted().distinct().toArray();
+    }
+
+    /**
+     * Computes the top {@code k} of {@code items} and bulk-writes them to the staging table.
+     *
+     * @return the number of rows staged
+     */
+    private long compute(long[] items, ItemNeighborStore.EmbeddingMatrix matrix) {
+        long[] rows = new long[1];
+        forEachNeighborList(items, matrix, properties.k(), new StagingWriter(rows));
+        return rows[0];
+    }
+
+    /**
+     * Runs the kNN for every page in {@code pageIds} in parallel partitions. {@code consumer} receives each page's
+     * neighbours, nearest first; each partition reports to its own {@link NeighborListConsumer#forPartition()}.
+     */
+    private void forEachNeighborList(
+            long[] pageIds,
+            ItemNeighborStore.EmbeddingMatrix matrix,
+            int k,
+            NeighborListConsumer consumer) {
+        int partitionSize = properties.partitionSize();
+        List<long[]> partitions = new ArrayList<>();
+        for (int from = 0; from < pageIds.length; from += partitionSize) {
+            partitions.add(Arrays.copyOfRange(pageIds, from, Math.min(pageIds.length, from + partitionSize)));
+        }
+        if (matrix != null) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                awaitAll(partitions.stream()
+                        .map(partition -> pool.submit(
+                                () -> scorePartition(partition, matrix, k, consumer.forPartition())))
+                        .toList());
+            } finally {
+                pool.shutdownNow();
+            }
+        } else {
+            Semaphore permits = new Semaphore(parallelism);
+            try (ExecutorService queries = Executors.newVirtualThreadPerTaskExecutor()) {
+                awaitAll(partitions.stream()
+                        .map(partition -> queries.submit(
+                                () -> queryPartition(partition, k, permits, consumer.forPartition())))
+                        .toList());
+            }
+        }
+    }
+
+    private void queryPartition(long[] partition, int k, Semaphore permits, NeighborListConsumer consumer) {
+        permits.acquireUninterruptibly();
+        try {
+            for (long pageId : partition) {
+                consumer.accept(pageId, store.nearest(pageId, k));
+            }
+            consumer.done();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Exact kNN of a partition against every embedding. Candidates are visited in tiles of {@code blockSize}
+     * vectors, and each tile is scored against the whole partition before moving on, so the tile stays in cache
+     * while partition vectors are reused across it.
+     */
+    private void scorePartition(
+            long[] partition,
+            ItemNeighborStore.EmbeddingMatrix matrix,
+            int k,
+            NeighborListConsumer consumer) {
+        int[] rows = new int[partition.length];
+        TopK[] tops = new TopK[partition.length];
+        for (int q = 0; q < partition.length; q++) {
+            rows[q] = matrix.indexOf(partition[q]);
+            tops[q] = new TopK(k);
+        }
+        float[][] vectors = matrix.vectors();
+        int dimension = vectors.length == 0 ? 0 : vectors[0].length;
+        for (int from = 0; from < vectors.length; from += properties.blockSize()) {
+            int to = Math.min(vectors.length, from + properties.blockSize());
+            for (int q = 0; q < partition.length; q++) {
+                int row = rows[q];
+                if (row < 0) {
+                    continue;
+                }
+                float[] query = vectors[row];
+                TopK top = tops[q];
+                for (int candidate = from; candidate < to; candidate++) {
+                    if (candidate != row && vectors[candidate].length == dimension) {
+                        top.offer(kernels.squaredDistance(query, vectors[candidate]), candidate);
+                    }
+                }
+            }
+        }
+        int[] indexes = new int[k];
+        float[] distances = new float[k];
+        for (int q = 0; q < partition.length; q++) {
+            if (rows[q] < 0) {
+                continue;
+            }
+            int count = tops[q].drainSorted(indexes, distances);
+            List<ItemNeighborStore.Neighbor> neighbors = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                neighbors.add(new ItemNeighborStore.Neighbor(matrix.ids()[indexes[i]], Math.sqrt(distances[i])));
+            }
+            consumer.accept(partition[q], neighbors);
+        }
+        consumer.done();
+    }
+
+    private static void awaitAll(List<? extends Future<?>> futures) {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Item neighbour job interrupted", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Receives the neighbour list of each page of one partition, then {@link #done()}.
+     */
+    private interface NeighborListConsumer {
+
+        void accept(long pageId, List<ItemNeighborStore.Neighbor> neighbors);
+
+        default void done() {
+        }
+
+        /**
+         * Returns the instance one partition reports to; stateless consumers can be shared.
+         */
+        default NeighborListConsumer forPartition() {
+            return this;
+        }
+    }
+
+    /**
+     * Buffers a partition's rows and writes them to the staging table every {@code writeBatchSize} rows.
+     */
+    private final class StagingWriter implements NeighborListConsumer {
+        private final long[] totalRows;
+        private final long[] itemIds;
+        private final long[] recommendedIds;
+        private final double[] scores;
+        private int count;
+
+        private StagingWriter(long[] totalRows) {
+            this.totalRows = totalRows;
+            int capacity = properties.writeBatchSize() + properties.k();
+            this.itemIds = new long[capacity];
+            this.recommendedIds = new long[capacity];
+            this.scores = new double[capacity];
+        }
+
+        @Override
+        public NeighborListConsumer forPartition() {
+            return new StagingWriter(totalRows);
+        }
+
+        @Override
+        public void accept(long pageId, List<ItemNeighborStore.Neighbor> neighbors) {
+            for (ItemNeighborStore.Neighbor neighbor : neighbors) {
+                itemIds[count] = pageId;
+                recommendedIds[count] = neighbor.pageId();
+                scores[count] = 1.0 / (1.0 + neighbor.distance());
+                count++;
+            }
+            if (count >= properties.writeBatchSize()) {
+                flush();
+            }
+        }
+
+        @Override
+        public void done() {
+            flush();
+        }
+
+        private void flush() {
+            store.writeStaging(itemIds, recommendedIds, scores, count);
+            synchronized (totalRows) {
+                totalRows[0] += count;
+            }
+            count = 0;
+        }
+    }
+}
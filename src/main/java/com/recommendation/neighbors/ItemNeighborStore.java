@@ -0,0 +1,269 @@
+package com.recommendation.neighbors;
+
+import com.recommendation.embedding.EmbeddingJobProperties;
+import com.recommendation.embedding.PgVector;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * SQL for {@link ItemNeighborJob}. Results are bulk-loaded into an unlogged staging table while they are computed,
+ * and only then moved into {@code item_recommendations} in one transaction, so readers see either the previous
+ * neighbours or the new ones, never a half-written set.
+ */
+@Component
+public class ItemNeighborStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NeighborProperties properties;
+    private final String itemIdsSql;
+    private final String embeddedSinceSql;
+    private final String loadSql;
+    private final String nearestSql;
+
+    public ItemNeighborStore(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            NeighborProperties properties,
+            EmbeddingJobProperties embeddingProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        String table = embeddingProperties.embeddingTable();
+        String pageId = embeddingProperties.embeddingPageIdColumn();
+        String vector = embeddingProperties.embeddingVectorColumn();
+        this.itemIdsSql = "SELECT %1$s FROM %2$s ORDER BY %1$s".formatted(pageId, table);
+        this.embeddedSinceSql = "SELECT %1$s FROM %2$s WHERE %3$s > ? ORDER BY %1$s".formatted(
+                pageId, table, embeddingProperties.embeddingUpdatedAtColumn());
+        this.loadSql = "SELECT %1$s AS page_id, %2$s AS embedding FROM %3$s WHERE %1$s > ? ORDER BY %1$s LIMIT ?"
+                .formatted(pageId, vector, table);
+        // Same shape as the similar-pages query: the scalar subquery keeps a constant operand for the HNSW index.
+        this.nearestSql = """
+                SELECT e.%1$s AS page_id, e.%2$s <-> (SELECT %2$s FROM %3$s WHERE %1$s = ?) AS distance
+                FROM %3$s e
+                WHERE e.%1$s <> ?
+                ORDER BY e.%2$s <-> (SELECT %2$s FROM %3$s WHERE %1$s = ?)
+                LIMIT ?
+                """.formatted(pageId, vector, table);
+    }
+
+    /**
+     * Page ids paired with their vectors, in id order.
+     */
+    record EmbeddingMatrix(long[] ids, float[][] vectors) {
+
+        int size() {
+            return ids.length;
+        }
+
+        /**
+         * Row of {@code pageId}, or a negative number if it has no embedding.
+         */
+        int indexOf(long pageId) {
+            return Arrays.binarySearch(ids, pageId);
+        }
+    }
+
+    record Neighbor(long pageId, double distance) {
+    }
+
+    /**
+     * Session-level advisory lock that makes a run exclusive across every node sharing the database, held on a
+     * connection of its own for as long as the run lasts. Closing it unlocks and returns the connection.
+     */
+    final class RunLock implements AutoCloseable {
+        private final Connection connection;
+        private final JdbcTemplate session;
+
+        private RunLock(Connection connection) {
+            this.connection = connection;
+            this.session = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        }
+
+        @Override
+        public void close() {
+            try {
+                session.queryForObject("SELECT pg_advisory_unlock(hashtext(?))", Boolean.class,
+                        properties.stagingTable());
+            } finally {
+                DataSourceUtils.releaseConnection(connection, jdbcTemplate.getDataSource());
+            }
+        }
+    }
+
+    /**
+     * Takes the run lock, keyed by the staging table every run writes to.
+     *
+     * @return the lock, or {@code null} if a run holds it elsewhere
+     */
+    RunLock tryLock() {
+        DataSource dataSource = Objects.requireNonNull(jdbcTemplate.getDataSource());
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        RunLock lock = new RunLock(connection);
+        boolean locked = false;
+        try {
+            locked = Boolean.TRUE.equals(lock.session.queryForObject(
+                    "SELECT pg_try_advisory_lock(hashtext(?))", Boolean.class, properties.stagingTable()));
+            return locked ? lock : null;
+        } finally {
+            if (!locked) {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        }
+    }
+
+    void ensureSchema() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS %s (
+                    job_name text PRIMARY KEY,
+                    last_started_at timestamptz NOT NULL
+                )
+                """.formatted(properties.stateTable()));
+        jdbcTemplate.execute("""
+                CREATE UNLOGGED TABLE IF NOT EXISTS %s (
+                    item_id bigint NOT NULL,
+                    recommended_item_id bigint NOT NULL,
+                    score double precision NOT NULL
+                )
+                """.formatted(properties.stagingTable()));
+    }
+
+    /**
+     * Start time of the last run that completed, or {@code null} before the first one.
+     */
+    Instant lastStartedAt() {
+        List<Timestamp> times = jdbcTemplate.queryForList(
+                "SELECT last_started_at FROM %s WHERE job_name = ?".formatted(properties.stateTable()),
+                Timestamp.class,
+                properties.table());
+        return times.isEmpty() ? null : times.get(0).toInstant();
+    }
+
+    void saveStartedAt(Instant startedAt) {
+        jdbcTemplate.update("""
+                INSERT INTO %s (job_name, last_started_at) VALUES (?, ?)
+                ON CONFLICT (job_name) DO UPDATE SET last_started_at = EXCLUDED.last_started_at
+                """.formatted(properties.stateTable()),
+                properties.table(), Timestamp.from(startedAt));
+    }
+
+    long[] itemIds() {
+        return toArray(jdbcTemplate.queryForList(itemIdsSql, Long.class));
+    }
+
+    long[] embeddedSince(Instant since) {
+        return toArray(jdbcTemplate.queryForList(embeddedSinceSql, Long.class, Timestamp.from(since)));
+    }
+
+    /**
+     * Reads every embedding by keyset pages of {@code batchSize}.
+     */
+    EmbeddingMatrix loadMatrix(int batchSize) {
+        List<Long> ids = new ArrayList<>();
+        List<float[]> vectors = new ArrayList<>();
+        long lastPageId = Long.MIN_VALUE;
+        while (true) {
+            int before = ids.size();
+            jdbcTemplate.query(loadSql, rs -> {
+                ids.add(rs.getLong("page_id"));
+                vectors.add(PgVector.parse(rs.getString("embedding")));
+            }, lastPageId, batchSize);
+            if (ids.size() == before) {
+                return new EmbeddingMatrix(toArray(ids), vectors.toArray(new float[0][]));
+            }
+            lastPageId = ids.get(ids.size() - 1);
+        }
+    }
+
+    /**
+     * Up to {@code k} nearest pages to {@code pageId} through the pgvector index, nearest first.
+     */
+    List<Neighbor> nearest(long pageId, int k) {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForObject("SELECT set_config('hnsw.ef_search', ?, true)", String.class,
+                    Integer.toString(Math.max(properties.efSearch(), k)));
+            return jdbcTemplate.query(nearestSql,
+                    (rs, rowNum) -> new Neighbor(rs.getLong("page_id"), rs.getDouble("distance")),
+                    pageId, pageId, pageId, k);
+        });
+    }
+
+    void clearStaging() {
+        jdbcTemplate.execute("TRUNCATE %s".formatted(properties.stagingTable()));
+    }
+
+    void writeStaging(long[] itemIds, long[] recommendedIds, double[] scores, int count) {
+        if (count == 0) {
+            return;
+        }
+        jdbcTemplate.update("""
+                INSERT INTO %s (item_id, recommended_item_id, score)
+                SELECT * FROM unnest(?::bigint[], ?::bigint[], ?::float8[])
+                """.formatted(properties.stagingTable()), ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("bigint", box(itemIds, count)));
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", box(recommendedIds, count)));
+            Double[] boxedScores = new Double[count];
+            for (int i = 0; i < count; i++) {
+                boxedScores[i] = scores[i];
+            }
+            ps.setArray(3, ps.getConnection().createArrayOf("float8", boxedScores));
+        });
+    }
+
+    /**
+     * Replaces every row of {@code item_recommendations} with the staged rows.
+     */
+    void replaceAll() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM %s".formatted(properties.table()));
+            publishStaging();
+        });
+    }
+
+    /**
+     * Replaces the rows of {@code itemIds} with the staged rows; other items keep their neighbours.
+     */
+    void replaceItems(long[] itemIds) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM %s WHERE item_id = ANY(?)".formatted(properties.table()),
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", box(itemIds, itemIds.length))));
+            publishStaging();
+        });
+    }
+
+    private void publishStaging() {
+        jdbcTemplate.update("""
+                INSERT INTO %s (item_id, recommended_item_id, score)
+                SELECT item_id, recommended_item_id, score FROM %s
+                """.formatted(properties.table(), properties.stagingTable()));
+        jdbcTemplate.execute("TRUNCATE %s".formatted(properties.stagingTable()));
+    }
+
+    private static long[] toArray(List<Long> values) {
+        long[] array = new long[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    private static Long[] box(long[] values, int count) {
+        Long[] boxed = new Long[count];
+        for (int i = 0; i < count; i++) {
+            boxed[i] = values[i];
+        }
+        return boxed;
+    }
+}
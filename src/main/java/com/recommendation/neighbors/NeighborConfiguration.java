@@ -0,0 +1,9 @@
+package com.recommendation.neighbors;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(NeighborProperties.class)
+public class NeighborConfiguration {
+}
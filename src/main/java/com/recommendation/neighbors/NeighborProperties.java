@@ -0,0 +1,106 @@
+package com.recommendation.neighbors;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the job that fills {@code item_recommendations} with each page's nearest pages by embedding.
+ * {@code partitionSize} pages form one parallel task; {@code blockSize} is the tile of candidate vectors the
+ * in-memory scorer keeps hot while it walks a partition. Incremental runs recompute the pages embedded since the
+ * last run plus their {@code incrementalFanout} nearest pages, and fall back to a full run when that touches more
+ * than {@code fullRebuildRatio} of all pages.
+ */
+@ConfigurationProperties(prefix = "recommendation.neighbors")
+public record NeighborProperties(
+        boolean enabled,
+        Boolean runOnStartup,
+        String schedule,
+        int k,
+        Method method,
+        int parallelism,
+        int partitionSize,
+        int blockSize,
+        int efSearch,
+        int writeBatchSize,
+        int incrementalFanout,
+        double fullRebuildRatio,
+        Duration catchUpMargin,
+        String table,
+        String stagingTable,
+        String stateTable
+) {
+    /**
+     * How neighbours are found: {@code PGVECTOR} runs one HNSW query per page in the database,
+     * {@code IN_MEMORY} loads every embedding and scores all pairs exactly with SIMD kernels.
+     */
+    public enum Method {
+        PGVECTOR,
+        IN_MEMORY
+    }
+
+    public NeighborProperties {
+        if (runOnStartup == null) {
+            runOnStartup = false;
+        }
+        if (k <= 0) {
+            k = 20;
+        }
+        if (method == null) {
+            method = Method.PGVECTOR;
+        }
+        if (parallelism < 0) {
+            parallelism = 0;
+        }
+        if (partitionSize <= 0) {
+            partitionSize = 256;
+        }
+        if (blockSize <= 0) {
+            blockSize = 1024;
+        }
+        if (efSearch <= 0) {
+            efSearch = 100;
+        }
+        if (writeBatchSize <= 0) {
+            writeBatchSize = 5000;
+        }
+        if (incrementalFanout <= 0) {
+            incrementalFanout = k * 2;
+        }
+        if (fullRebuildRatio <= 0 || fullRebuildRatio > 1) {
+            fullRebuildRatio = 0.25;
+        }
+        if (catchUpMargin == null) {
+            catchUpMargin = Duration.ofMinutes(5);
+        }
+        if (table == null || table.isBlank()) {
+            table = "item_recommendations";
+        }
+        if (stagingTable == null || stagingTable.isBlank()) {
+            stagingTable = table + "_staging";
+        }
+        if (stateTable == null || stateTable.isBlank()) {
+            stateTable = "item_neighbor_job_state";
+        }
+    }
+
+    /**
+     * Partitions a run works on at once. Each one holds a primary connection while it queries or writes, and the run
+     * lock holds one more, so at most {@code maxPoolSize - 2} are allowed and serving reads keep a connection. Unset,
+     * it is the number of cores within that limit.
+     *
+     * @param maxPoolSize size of the primary pool, or {@code 0} if unknown
+     * @throws IllegalArgumentException if {@code parallelism} is set above the limit
+     */
+    public int effectiveParallelism(int maxPoolSize) {
+        int limit = maxPoolSize > 0 ? Math.max(1, maxPoolSize - 2) : Integer.MAX_VALUE;
+        if (parallelism == 0) {
+            return Math.min(Runtime.getRuntime().availableProcessors(), limit);
+        }
+        if (parallelism > limit) {
+            throw new IllegalArgumentException(("recommendation.neighbors.parallelism=%d would take every primary "
+                    + "connection; at most %d with a pool of %d").formatted(parallelism, limit, maxPoolSize));
+        }
+        return parallelism;
+    }
+}
@@ -0,0 +1,86 @@
+package com.recommendation.neighbors;
+
+/**
+ * The {@code k} smallest distances offered so far, kept as a bounded max-heap over primitive arrays so scoring
+ * millions of pairs allocates nothing.
+ */
+final class TopK {
+
+    private final float[] distances;
+    private final int[] indexes;
+    private int size;
+
+    TopK(int k) {
+        this.distances = new float[k];
+        this.indexes = new int[k];
+    }
+
+    void offer(float distance, int index) {
+        if (size < distances.length) {
+            distances[size] = distance;
+            indexes[size] = index;
+            siftUp(size++);
+        } else if (distance < distances[0]) {
+            distances[0] = distance;
+            indexes[0] = index;
+            siftDown(0);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Drains the heap into {@code outIndexes}/{@code outDistances}, nearest first, and returns the count.
+     */
+    int drainSorted(int[] outIndexes, float[] outDistances) {
+        int count = size;
+        for (int i = count - 1; i >= 0; i--) {
+            outIndexes[i] = indexes[0];
+            outDistances[i] = distances[0];
+            size--;
+            if (size > 0) {
+                distances[0] = distances[size];
+                indexes[0] = indexes[size];
+                siftDown(0);
+            }
+        }
+        return count;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (distances[parent] >= distances[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int largest = left + 1 < size && distances[left + 1] > distances[left] ? left + 1 : left;
+            if (distances[i] >= distances[largest]) {
+                return;
+            }
+            swap(i, largest);
+            i = largest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        float distance = distances[a];
+        distances[a] = distances[b];
+        distances[b] = distance;
+        int index = indexes[a];
+        indexes[a] = indexes[b];
+        indexes[b] = index;
+    }
+}
@@ -0,0 +1,124 @@
+package com.recommendation.ocr.controller;
+
+import com.recommendation.ocr.model.OcrCrawlJob;
+import com.recommendation.ocr.model.OcrCrawlerRequest;
+import com.recommendation.ocr.service.OcrCrawlJobStore;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/ocr/jobs")
+public class OcrCrawlJobController implements DisposableBean {
+
+    private static final long SSE_TIMEOUT_MILLIS = 0;
+
+    private final OcrCrawlJobStore jobStore;
+    private final Duration statusPollInterval;
+    private final ExecutorService sseExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public OcrCrawlJobController(
+            OcrCrawlJobStore jobStore,
+            @Value("${ocr.jobs.status-poll-interval:1s}") Duration statusPollInterval) {
+        this.jobStore = jobStore;
+        this.statusPollInterval = statusPollInterval;
+    }
+
+    @PostMapping
+    public ResponseEntity<OcrCrawlJob> submit(@RequestBody OcrCrawlerRequest request) {
+        if (request.startUrl() == null || request.startUrl().isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        OcrCrawlJob job = jobStore.submit(request);
+        return ResponseEntity.accepted().location(URI.create("/api/ocr/jobs/" + job.id())).body(job);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<OcrCrawlJob> status(@PathVariable("id") String id) {
+        OcrCrawlJob job = find(id);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
+    }
+
+    /**
+     * Sends the job as a {@code status} event whenever its row changes, and completes once it has finished.
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> events(@PathVariable("id") String id) {
+        OcrCrawlJob first = find(id);
+        if (first == null) {
+            return ResponseEntity.notFound().build();
+        }
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MILLIS);
+        // Stop polling as soon as the client is gone rather than when the job ends or the next send fails.
+        AtomicBoolean closed = new AtomicBoolean();
+        emitter.onTimeout(() -> closed.set(true));
+        emitter.onError(ex -> closed.set(true));
+        emitter.onCompletion(() -> closed.set(true));
+        sseExecutor.execute(() -> {
+            try {
+                OcrCrawlJob last = null;
+                OcrCrawlJob job = first;
+                while (job != null && !closed.get()) {
+                    if (!Objects.equals(job, last)) {
+                        emitter.send(SseEmitter.event().name("status").data(job, MediaType.APPLICATION_JSON));
+                        last = job;
+                    }
+                    if (job.status().terminal()) {
+                        break;
+                    }
+                    Thread.sleep(statusPollInterval.toMillis());
+                    job = jobStore.find(id);
+                }
+                emitter.complete();
+            } catch (IOException | RuntimeException ex) {
+                emitter.completeWithError(ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                emitter.complete();
+            }
+        });
+        return ResponseEntity.ok(emitter);
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<OcrCrawlJob> cancel(@PathVariable("id") String id) {
+        if (find(id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return jobStore.requestCancel(id)
+                ? ResponseEntity.accepted().body(jobStore.find(id))
+                : ResponseEntity.status(HttpStatus.CONFLICT).body(jobStore.find(id));
+    }
+
+    @Override
+    public void destroy() {
+        sseExecutor.shutdownNow();
+    }
+
+    // Ids are uuids; anything else cannot match a job and would only make the ::uuid cast fail.
+    private OcrCrawlJob find(String id) {
+        try {
+            UUID.fromString(id);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+        return jobStore.find(id);
+    }
+}
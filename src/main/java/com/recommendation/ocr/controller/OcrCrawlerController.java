@@ -1,26 +1,138 @@
 package com.recommendation.ocr.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.recommendation.ocr.model.OcrCrawlEvent;
 import com.recommendation.ocr.model.OcrCrawlerRequest;
 import com.recommendation.ocr.model.OcrCrawlerResponse;
 import com.recommendation.ocr.service.OcrCrawlerService;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/ocr")
-public class OcrCrawlerController {
+public class OcrCrawlerController implements DisposableBean {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    // No async timeout: a crawl streams for as long as it runs.
+    private static final long STREAM_TIMEOUT_MILLIS = 0;
+    private static final byte NEWLINE = '\n';
 
     private final OcrCrawlerService crawlerService;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService streamExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
-    public OcrCrawlerController(OcrCrawlerService crawlerService) {
+    public OcrCrawlerController(OcrCrawlerService crawlerService, ObjectMapper objectMapper) {
         this.crawlerService = crawlerService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/crawl")
     public ResponseEntity<OcrCrawlerResponse> crawl(@RequestBody OcrCrawlerRequest request) {
         return ResponseEntity.ok(crawlerService.crawlAndOcr(request));
     }
+
+    /**
+     * Streams {@link OcrCrawlEvent}s as newline-delimited JSON, one line per event, flushed as each is produced.
+     */
+    @PostMapping(value = "/crawl/stream", produces = "application/x-ndjson")
+    public ResponseEntity<ResponseBodyEmitter> crawlStream(@RequestBody OcrCrawlerRequest request) {
+        if (!hasStartUrl(request)) {
+            return ResponseEntity.badRequest().build();
+        }
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(STREAM_TIMEOUT_MILLIS);
+        stream(emitter, request, event -> emitter.send(toJsonLine(event), NDJSON));
+        return ResponseEntity.ok().contentType(NDJSON).body(emitter);
+    }
+
+    /**
+     * Streams {@link OcrCrawlEvent}s as Server-Sent Events named after the event type.
+     */
+    @PostMapping(value = "/crawl/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> crawlEvents(@RequestBody OcrCrawlerRequest request) {
+        if (!hasStartUrl(request)) {
+            return ResponseEntity.badRequest().build();
+        }
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        stream(emitter, request, event -> emitter.send(
+                SseEmitter.event().name(event.type().name()).data(event, MediaType.APPLICATION_JSON)));
+        return ResponseEntity.ok(emitter);
+    }
+
+    @PostMapping("/crawl/{id}/cancel")
+    public ResponseEntity<Void> cancel(@PathVariable("id") String crawlId) {
+        return crawlerService.cancel(crawlId)
+                ? ResponseEntity.accepted().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @Override
+    public void destroy() {
+        streamExecutor.shutdownNow();
+    }
+
+    /**
+     * Runs the crawl on a virtual thread and sends its events to {@code emitter}. The crawl is cancelled as soon as
+     * the emitter times out, fails or completes, so a client that goes away does not leave it running.
+     */
+    private void stream(ResponseBodyEmitter emitter, OcrCrawlerRequest request, EventSender sender) {
+        String crawlId = UUID.randomUUID().toString();
+        AtomicBoolean closed = new AtomicBoolean();
+        Runnable stop = () -> {
+            closed.set(true);
+            crawlerService.cancel(crawlId);
+        };
+        emitter.onTimeout(stop);
+        emitter.onError(ex -> stop.run());
+        emitter.onCompletion(stop);
+        streamExecutor.execute(() -> {
+            crawlerService.streamCrawl(crawlId, request, event -> {
+                // The callbacks may fire before the crawl is registered; a send after that cancels it instead.
+                if (closed.get()) {
+                    throw new IllegalStateException("Stream closed");
+                }
+                try {
+                    sender.send(event);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            emitter.complete();
+        });
+    }
+
+    private byte[] toJsonLine(OcrCrawlEvent event) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(event);
+            byte[] line = Arrays.copyOf(json, json.length + 1);
+            line[json.length] = NEWLINE;
+            return line;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private boolean hasStartUrl(OcrCrawlerRequest request) {
+        return request.startUrl() != null && !request.startUrl().isBlank();
+    }
+
+    @FunctionalInterface
+    private interface EventSender {
+
+        void send(OcrCrawlEvent event) throws IOException;
+    }
 }
@@ -0,0 +1,36 @@
+package com.recommendation.ocr.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One event of a streamed crawl: {@code STARTED} carries the crawl id used to cancel it, {@code RESULT} one
+ * finished document, {@code PROGRESS} counters after each URL, and exactly one of {@code COMPLETED},
+ * {@code CANCELLED} or {@code FAILED} ends the stream.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record OcrCrawlEvent(Type type, String crawlId, OcrResult result, Progress progress, String error) {
+
+    public enum Type {
+        STARTED,
+        RESULT,
+        PROGRESS,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+
+    public record Progress(int urlsVisited, int filesProcessed, int inFlight, int queued) {
+    }
+
+    public static OcrCrawlEvent of(Type type, String crawlId, Progress progress) {
+        return new OcrCrawlEvent(type, crawlId, null, progress, null);
+    }
+
+    public static OcrCrawlEvent result(String crawlId, OcrResult result) {
+        return new OcrCrawlEvent(Type.RESULT, crawlId, result, null, null);
+    }
+
+    public static OcrCrawlEvent failed(String crawlId, String error) {
+        return new OcrCrawlEvent(Type.FAILED, crawlId, null, null, error);
+    }
+}
@@ -0,0 +1,35 @@
+package com.recommendation.ocr.model;
+
+import java.time.Instant;
+
+/**
+ * A queued crawl and how far it has got. Counters are refreshed by the worker's heartbeat, so they may trail the
+ * crawl by up to one heartbeat interval while it is {@code RUNNING}.
+ */
+public record OcrCrawlJob(
+        String id,
+        Status status,
+        String startUrl,
+        int maxDepth,
+        int maxFiles,
+        int attempts,
+        int urlsVisited,
+        int filesProcessed,
+        int pagesWritten,
+        String error,
+        Instant createdAt,
+        Instant startedAt,
+        Instant finishedAt
+) {
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED;
+
+        public boolean terminal() {
+            return this == COMPLETED || this == CANCELLED || this == FAILED;
+        }
+    }
+}
@@ -1,4 +1,19 @@
 package com.recommendation.ocr.model;
 
-public record OcrResult(String sourceUrl, String contentType, String text, String error) {
+/**
+ * Text of one crawled document. {@code processingMillis} is the time spent extracting it; for PDFs,
+ * {@code pages} counts the pages read and {@code ocrPages} those among them without a usable text layer.
+ */
+public record OcrResult(
+        String sourceUrl,
+        String contentType,
+        String text,
+        String error,
+        Long processingMillis,
+        Integer pages,
+        Integer ocrPages
+) {
+    public OcrResult(String sourceUrl, String contentType, String text, String error) {
+        this(sourceUrl, contentType, text, error, null, null, null);
+    }
 }
@@ -0,0 +1,112 @@
+package com.recommendation.ocr.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Streams crawled documents to temp files, so a download costs one copy buffer of heap whatever its size. The
+ * SHA-256 used by {@link OcrDocumentCache} is computed on the way through.
+ */
+final class CrawlDownloads {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private CrawlDownloads() {
+    }
+
+    /**
+     * A downloaded document; the caller deletes {@code file} once it is done with it.
+     */
+    record Download(Path file, long size, byte[] sha256) {
+
+        void delete() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ex) {
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    static final class DocumentTooLargeException extends IOException {
+        DocumentTooLargeException(long maxBytes) {
+            super("Document exceeds " + maxBytes + " bytes");
+        }
+    }
+
+    /**
+     * Copies {@code body} to a new temp file in {@code directory} ({@code null} for the default temp directory).
+     *
+     * @throws DocumentTooLargeException once more than {@code maxBytes} have arrived; the partial file is deleted
+     */
+    static Download toTempFile(InputStream body, long maxBytes, Path directory) throws IOException {
+        Path file = directory == null
+                ? Files.createTempFile("ocr-", ".download")
+                : Files.createTempFile(directory, "ocr-", ".download");
+        MessageDigest digest = sha256();
+        long size = 0;
+        try (OutputStream out = new DigestOutputStream(Files.newOutputStream(file), digest)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                size += read;
+                if (size > maxBytes) {
+                    throw new DocumentTooLargeException(maxBytes);
+                }
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(file);
+            throw ex;
+        }
+        return new Download(file, size, digest.digest());
+    }
+
+    /**
+     * Returns a stream that reports end-of-input after {@code maxBytes}, for parsers that buffer their whole input.
+     */
+    static InputStream limit(InputStream in, long maxBytes) {
+        return new FilterInputStream(in) {
+            private long remaining = maxBytes;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = super.read();
+                if (b != -1) {
+                    remaining--;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int read = super.read(b, off, (int) Math.min(len, remaining));
+                if (read > 0) {
+                    remaining -= read;
+                }
+                return read;
+            }
+        };
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
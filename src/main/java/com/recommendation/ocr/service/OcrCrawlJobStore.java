@@ -0,0 +1,224 @@
+package com.recommendation.ocr.service;
+
+import com.recommendation.ocr.model.OcrCrawlJob;
+import com.recommendation.ocr.model.OcrCrawlerRequest;
+import java.lang.management.ManagementFactory;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Postgres-backed queue of crawl jobs. Workers on any node claim the oldest queued job with
+ * {@code FOR UPDATE SKIP LOCKED}, so concurrent claims never block on or hand out the same row. A claim is kept
+ * alive by heartbeats; a job whose worker stopped heart-beating for {@code ocr.jobs.lease} is claimed again, up to
+ * {@code ocr.jobs.max-attempts} times.
+ */
+@Component
+public class OcrCrawlJobStore {
+
+    private static final String COLUMNS = """
+            id, status, start_url, max_depth, max_files, attempts, urls_visited, files_processed, pages_written,
+            error, created_at, started_at, finished_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String table;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final String workerId = ManagementFactory.getRuntimeMXBean().getName();
+
+    public OcrCrawlJobStore(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${ocr.jobs.table:ocr_crawl_job}") String table,
+            @Value("${ocr.jobs.lease:5m}") Duration lease,
+            @Value("${ocr.jobs.max-attempts:3}") int maxAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.table = table;
+        this.lease = lease;
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    void ensureSchema() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS %1$s (
+                    id uuid PRIMARY KEY,
+                    status text NOT NULL DEFAULT 'QUEUED',
+                    start_url text NOT NULL,
+                    max_depth int NOT NULL,
+                    max_files int NOT NULL,
+                    attempts int NOT NULL DEFAULT 0,
+                    urls_visited int NOT NULL DEFAULT 0,
+                    files_processed int NOT NULL DEFAULT 0,
+                    pages_written int NOT NULL DEFAULT 0,
+                    cancel_requested boolean NOT NULL DEFAULT false,
+                    error text,
+                    claimed_by text,
+                    heartbeat_at timestamptz,
+                    created_at timestamptz NOT NULL DEFAULT now(),
+                    started_at timestamptz,
+                    finished_at timestamptz
+                )
+                """.formatted(table));
+        jdbcTemplate.execute("""
+                CREATE INDEX IF NOT EXISTS %1$s_claimable_idx ON %1$s (created_at)
+                WHERE status IN ('QUEUED', 'RUNNING')
+                """.formatted(table));
+    }
+
+    public OcrCrawlJob submit(OcrCrawlerRequest request) {
+        String id = UUID.randomUUID().toString();
+        int maxDepth = Objects.requireNonNullElse(request.maxDepth(), OcrCrawlerService.DEFAULT_MAX_DEPTH);
+        int maxFiles = Objects.requireNonNullElse(request.maxFiles(), OcrCrawlerService.DEFAULT_MAX_FILES);
+        jdbcTemplate.update("""
+                INSERT INTO %s (id, start_url, max_depth, max_files) VALUES (?::uuid, ?, ?, ?)
+                """.formatted(table),
+                id, request.startUrl(), maxDepth, maxFiles);
+        return find(id);
+    }
+
+    public OcrCrawlJob find(String id) {
+        List<OcrCrawlJob> jobs = jdbcTemplate.query(
+                "SELECT %s FROM %s WHERE id = ?::uuid".formatted(COLUMNS, table), this::mapJob, id);
+        return jobs.isEmpty() ? null : jobs.get(0);
+    }
+
+    /**
+     * Cancels a queued job outright; a running job is flagged and stopped by its worker at the next heartbeat.
+     *
+     * @return {@code false} if the job does not exist or has already finished
+     */
+    public boolean requestCancel(String id) {
+        return transactionTemplate.execute(status -> {
+            int queued = jdbcTemplate.update("""
+                    UPDATE %s SET status = 'CANCELLED', finished_at = now()
+                    WHERE id = ?::uuid AND status = 'QUEUED'
+                    """.formatted(table), id);
+            if (queued > 0) {
+                return true;
+            }
+            return jdbcTemplate.update("""
+                    UPDATE %s SET cancel_requested = true WHERE id = ?::uuid AND status = 'RUNNING'
+                    """.formatted(table), id) > 0;
+        });
+    }
+
+    /**
+     * Claims the oldest queued job, or a running one whose lease has expired. Jobs that have used up their
+     * attempts are failed instead of being handed out again.
+     *
+     * @return the claimed job, or {@code null} when nothing is claimable
+     */
+    OcrCrawlJob claim() {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.update("""
+                    UPDATE %s SET status = 'CANCELLED', finished_at = now()
+                    WHERE status = 'RUNNING' AND cancel_requested
+                      AND heartbeat_at < now() - make_interval(secs => ?)
+                    """.formatted(table),
+                    lease.toSeconds());
+            List<OcrCrawlJob> candidates = jdbcTemplate.query("""
+                    SELECT %s
+                    FROM %s
+                    WHERE status = 'QUEUED'
+                       OR (status = 'RUNNING' AND heartbeat_at < now() - make_interval(secs => ?))
+                    ORDER BY created_at
+                    LIMIT 1
+                    FOR UPDATE SKIP LOCKED
+                    """.formatted(COLUMNS, table),
+                    this::mapJob,
+                    lease.toSeconds());
+            if (candidates.isEmpty()) {
+                return null;
+            }
+            OcrCrawlJob job = candidates.get(0);
+            if (job.attempts() >= maxAttempts) {
+                jdbcTemplate.update("""
+                        UPDATE %s SET status = 'FAILED', error = ?, finished_at = now() WHERE id = ?::uuid
+                        """.formatted(table),
+                        "Abandoned after " + job.attempts() + " attempts", job.id());
+                return null;
+            }
+            jdbcTemplate.update("""
+                    UPDATE %s
+                    SET status = 'RUNNING', attempts = attempts + 1, claimed_by = ?, heartbeat_at = now(),
+                        started_at = coalesce(started_at, now())
+                    WHERE id = ?::uuid
+                    """.formatted(table),
+                    workerId, job.id());
+            return find(job.id());
+        });
+    }
+
+    /**
+     * Renews the claim and records progress.
+     *
+     * @return {@code true} if the job should stop: cancellation was requested or another worker took it over
+     */
+    boolean heartbeat(String id, int urlsVisited, int filesProcessed, int pagesWritten) {
+        List<Boolean> cancelRequested = jdbcTemplate.queryForList("""
+                UPDATE %s
+                SET heartbeat_at = now(), urls_visited = ?, files_processed = ?, pages_written = ?
+                WHERE id = ?::uuid AND claimed_by = ? AND status = 'RUNNING'
+                RETURNING cancel_requested
+                """.formatted(table),
+                Boolean.class,
+                urlsVisited, filesProcessed, pagesWritten, id, workerId);
+        return cancelRequested.isEmpty() || cancelRequested.get(0);
+    }
+
+    void finish(String id, OcrCrawlJob.Status status, int urlsVisited, int filesProcessed, int pagesWritten,
+            String error) {
+        jdbcTemplate.update("""
+                UPDATE %s
+                SET status = ?, urls_visited = ?, files_processed = ?, pages_written = ?, error = ?,
+                    finished_at = now(), heartbeat_at = now()
+                WHERE id = ?::uuid AND claimed_by = ? AND status = 'RUNNING'
+                """.formatted(table),
+                status.name(), urlsVisited, filesProcessed, pagesWritten, error, id, workerId);
+    }
+
+    /**
+     * Puts a job this worker holds back in the queue, e.g. on shutdown, without waiting for its lease to expire.
+     */
+    void release(String id) {
+        jdbcTemplate.update("""
+                UPDATE %s SET status = 'QUEUED', claimed_by = NULL, heartbeat_at = NULL
+                WHERE id = ?::uuid AND claimed_by = ? AND status = 'RUNNING'
+                """.formatted(table),
+                id, workerId);
+    }
+
+    private OcrCrawlJob mapJob(ResultSet rs, int rowNum) throws SQLException {
+        return new OcrCrawlJob(
+                rs.getString("id"),
+                OcrCrawlJob.Status.valueOf(rs.getString("status")),
+                rs.getString("start_url"),
+                rs.getInt("max_depth"),
+                rs.getInt("max_files"),
+                rs.getInt("attempts"),
+                rs.getInt("urls_visited"),
+                rs.getInt("files_processed"),
+                rs.getInt("pages_written"),
+                rs.getString("error"),
+                toInstant(rs.getTimestamp("created_at")),
+                toInstant(rs.getTimestamp("started_at")),
+                toInstant(rs.getTimestamp("finished_at")));
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+}
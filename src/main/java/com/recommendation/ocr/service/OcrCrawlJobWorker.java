@@ -0,0 +1,231 @@
+package com.recommendation.ocr.service;
+
+import com.recommendation.ocr.model.OcrCrawlEvent;
+import com.recommendation.ocr.model.OcrCrawlJob;
+import com.recommendation.ocr.model.OcrCrawlerRequest;
+import com.recommendation.ocr.model.OcrResult;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Claims crawl jobs from {@link OcrCrawlJobStore} and runs them on virtual threads, at most
+ * {@code ocr.jobs.workers} at a time on this node. Every node with {@code ocr.jobs.enabled} polls the same queue,
+ * so adding nodes adds crawl and OCR capacity. OCR'd documents are buffered per job and written to the page table
+ * through {@link OcrPageWriter} every {@code ocr.jobs.page-batch-size} results and when the crawl ends.
+ */
+@Service
+@Slf4j
+public class OcrCrawlJobWorker implements DisposableBean {
+
+    private static final long SHUTDOWN_GRACE_SECONDS = 10;
+
+    private final OcrCrawlJobStore store;
+    private final OcrPageWriter pageWriter;
+    private final OcrCrawlerService crawlerService;
+    private final boolean enabled;
+    private final int workers;
+    private final int pageBatchSize;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, RunningJob> running = new ConcurrentHashMap<>();
+    private volatile boolean schemaReady;
+    private volatile boolean shuttingDown;
+
+    public OcrCrawlJobWorker(
+            OcrCrawlJobStore store,
+            OcrPageWriter pageWriter,
+            OcrCrawlerService crawlerService,
+            @Value("${ocr.jobs.enabled:false}") boolean enabled,
+            @Value("${ocr.jobs.workers:2}") int workers,
+            @Value("${ocr.jobs.page-batch-size:50}") int pageBatchSize) {
+        this.store = store;
+        this.pageWriter = pageWriter;
+        this.crawlerService = crawlerService;
+        this.enabled = enabled;
+        this.workers = Math.max(1, workers);
+        this.pageBatchSize = Math.max(1, pageBatchSize);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            log.info("OCR crawl job worker disabled (ocr.jobs.enabled=false).");
+            return;
+        }
+        try {
+            store.ensureSchema();
+            schemaReady = true;
+        } catch (RuntimeException ex) {
+            log.error("OCR crawl job tables could not be prepared; this node will not run crawl jobs.", ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ocr.jobs.poll-interval:2s}")
+    public void poll() {
+        if (!schemaReady || shuttingDown) {
+            return;
+        }
+        try {
+            while (running.size() < workers && !shuttingDown) {
+                OcrCrawlJob job = store.claim();
+                if (job == null) {
+                    return;
+                }
+                RunningJob runningJob = new RunningJob(job);
+                running.put(job.id(), runningJob);
+                executor.execute(() -> execute(runningJob));
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Failed to claim OCR crawl jobs.", ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ocr.jobs.heartbeat-interval:30s}")
+    public void heartbeat() {
+        for (RunningJob job : running.values()) {
+            try {
+                if (store.heartbeat(job.id(), job.urlsVisited, job.filesProcessed, job.pagesWritten)) {
+                    job.stop(false);
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Heartbeat for OCR crawl job {} failed.", job.id(), ex);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        shuttingDown = true;
+        running.values().forEach(job -> job.stop(true));
+        executor.shutdown();
+        if (!executor.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void execute(RunningJob job) {
+        long start = System.nanoTime();
+        log.info("OCR crawl job {} started for {} (attempt {}).", job.id(), job.job.startUrl(), job.job.attempts());
+        try {
+            crawlerService.streamCrawl(
+                    new OcrCrawlerRequest(job.job.startUrl(), job.job.maxDepth(), job.job.maxFiles()), job::onEvent);
+            job.flush();
+            if (job.released) {
+                store.release(job.id());
+                log.info("OCR crawl job {} released back to the queue on shutdown.", job.id());
+                return;
+            }
+            OcrCrawlJob.Status status = job.error != null
+                    ? OcrCrawlJob.Status.FAILED
+                    : job.stopped ? OcrCrawlJob.Status.CANCELLED : OcrCrawlJob.Status.COMPLETED;
+            store.finish(job.id(), status, job.urlsVisited, job.filesProcessed, job.pagesWritten, job.error);
+            log.info("OCR crawl job {} {} after {} URLs, {} files and {} pages written in {} ms.",
+                    job.id(), status, job.urlsVisited, job.filesProcessed, job.pagesWritten,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException ex) {
+            log.error("OCR crawl job {} failed.", job.id(), ex);
+            store.finish(job.id(), OcrCrawlJob.Status.FAILED, job.urlsVisited, job.filesProcessed,
+                    job.pagesWritten, ex.getMessage());
+        } finally {
+            running.remove(job.id());
+        }
+    }
+
+    /**
+     * A job running on this node. Crawl events arrive from several fetch threads; counters are only read by the
+     * heartbeat, so plain volatile writes are enough.
+     */
+    private final class RunningJob {
+        private final OcrCrawlJob job;
+        private final List<OcrResult> pending = new ArrayList<>();
+        private volatile String crawlId;
+        private volatile boolean stopped;
+        private volatile boolean released;
+        private volatile String error;
+        private volatile int urlsVisited;
+        private volatile int filesProcessed;
+        private volatile int pagesWritten;
+
+        private RunningJob(OcrCrawlJob job) {
+            this.job = job;
+        }
+
+        String id() {
+            return job.id();
+        }
+
+        void onEvent(OcrCrawlEvent event) {
+            switch (event.type()) {
+                case STARTED -> {
+                    crawlId = event.crawlId();
+                    if (stopped) {
+                        crawlerService.cancel(crawlId);
+                    }
+                }
+                case RESULT -> add(event.result());
+                case PROGRESS, COMPLETED, CANCELLED -> {
+                    urlsVisited = event.progress().urlsVisited();
+                    filesProcessed = event.progress().filesProcessed();
+                }
+                case FAILED -> error = event.error();
+            }
+        }
+
+        void stop(boolean release) {
+            released = released || release;
+            stopped = true;
+            String id = crawlId;
+            if (id != null) {
+                crawlerService.cancel(id);
+            }
+        }
+
+        private void add(OcrResult result) {
+            List<OcrResult> batch;
+            synchronized (pending) {
+                pending.add(result);
+                if (pending.size() < pageBatchSize) {
+                    return;
+                }
+                batch = List.copyOf(pending);
+                pending.clear();
+            }
+            write(batch);
+        }
+
+        void flush() {
+            List<OcrResult> batch;
+            synchronized (pending) {
+                batch = List.copyOf(pending);
+                pending.clear();
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        }
+
+        private void write(List<OcrResult> batch) {
+            try {
+                int written = pageWriter.write(batch);
+                synchronized (this) {
+                    pagesWritten += written;
+                }
+            } catch (RuntimeException ex) {
+                // Rethrown so the crawl stops; the job fails instead of OCR'ing documents it cannot store.
+                error = "Failed to write pages: " + ex.getMessage();
+                throw ex;
+            }
+        }
+    }
+}
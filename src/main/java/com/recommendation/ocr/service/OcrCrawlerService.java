@@ -1,116 +1,426 @@
 package com.recommendation.ocr.service;
 
+import com.recommendation.ocr.model.OcrCrawlEvent;
 import com.recommendation.ocr.model.OcrCrawlerRequest;
 import com.recommendation.ocr.model.OcrCrawlerResponse;
 import com.recommendation.ocr.model.OcrResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.time.Duration;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Queue;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import javax.imageio.ImageIO;
-import net.sourceforge.tess4j.Tesseract;
 import net.sourceforge.tess4j.TesseractException;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.PDFRenderer;
-import org.apache.pdfbox.rendering.RenderingMode;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 
+/**
+ * Crawls from a start URL and OCRs the PDFs and images it finds.
+ * <p>
+ * Each URL is fetched on its own virtual thread. At most {@code ocr.crawl.max-concurrency} requests are in flight
+ * across all crawls on this node, and at most {@code ocr.crawl.per-host-concurrency} hit any one host at a time. OCR runs on a separate fixed pool of {@code ocr.threads} platform threads (default: one per core), so
+ * network waits overlap with OCR; each OCR call borrows an initialized engine from {@link TesseractEnginePool}.
+ * PDFs are read from their text layer where they have one, and their remaining pages are OCR'd in parallel on the
+ * same pool (see {@link PdfTextExtractor}). A request's slot is freed once its body is read, but at most
+ * {@code ocr.crawl.max-concurrency} downloaded documents wait for or undergo extraction on this node; further
+ * downloads hold their request slot until one finishes, which throttles fetching when OCR falls behind instead of
+ * piling up temp files. Documents already OCR'd are revalidated with
+ * conditional GETs and reused by content hash through {@link OcrDocumentCache}.
+ * <p>
+ * Bodies are never held on the heap whole: documents stream to temp files of at most {@code ocr.download.max-size}
+ * (rejected up front when {@code Content-Length} says so), HTML is parsed from the stream in its declared charset
+ * up to {@code ocr.download.max-html-size}, and responses of any other type are closed unread.
+ */
 @Service
-public class OcrCrawlerService {
+public class OcrCrawlerService implements DisposableBean {
+
+    static final int DEFAULT_MAX_DEPTH = 1;
+    static final int DEFAULT_MAX_FILES = 10;
+    private static final long FRONTIER_POLL_MILLIS = 50;
+    private static final int HTTP_NOT_MODIFIED = 304;
 
     private final HttpClient httpClient;
-    private final String tesseractDataPath;
-    private final String tesseractLanguage;
-    private final int pdfMaxPages;
+    private final TesseractEnginePool tesseractPool;
+    private final PdfTextExtractor pdfExtractor;
+    private final OcrDocumentCache documentCache;
+    private final int maxConcurrency;
+    private final int perHostConcurrency;
+    private final Semaphore inFlight;
+    private final Semaphore pendingDocuments;
+    private final Map<String, HostSlots> hostSlots = new ConcurrentHashMap<>();
+    private final ExecutorService ocrExecutor;
+    private final Map<String, CrawlRun> activeCrawls = new ConcurrentHashMap<>();
+    private final Timer pdfTimer;
+    private final Timer imageTimer;
+    private final long maxDocumentBytes;
+    private final long maxHtmlBytes;
+    private final Path downloadDirectory;
 
     public OcrCrawlerService(
-            @Value("${ocr.tesseract.data-path:}") String tesseractDataPath,
-            @Value("${ocr.tesseract.language:eng}") String tesseractLanguage,
-            @Value("${ocr.pdf.max-pages:5}") int pdfMaxPages) {
+            TesseractEnginePool tesseractPool,
+            PdfTextExtractor pdfExtractor,
+            OcrDocumentCache documentCache,
+            MeterRegistry meterRegistry,
+            @Value("${ocr.crawl.max-concurrency:32}") int maxConcurrency,
+            @Value("${ocr.crawl.per-host-concurrency:4}") int perHostConcurrency,
+            @Value("${ocr.threads:0}") int ocrThreads,
+            @Value("${ocr.download.max-size:100MB}") DataSize maxDocumentSize,
+            @Value("${ocr.download.max-html-size:5MB}") DataSize maxHtmlSize,
+            @Value("${ocr.download.temp-dir:}") String downloadDirectory) {
         this.httpClient = HttpClient.newBuilder()
                 .connectTimeout(Duration.ofSeconds(10))
                 .build();
-        this.tesseractDataPath = tesseractDataPath;
-        this.tesseractLanguage = tesseractLanguage;
-        this.pdfMaxPages = pdfMaxPages;
+        this.tesseractPool = tesseractPool;
+        this.pdfExtractor = pdfExtractor;
+        this.documentCache = documentCache;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.perHostConcurrency = Math.max(1, perHostConcurrency);
+        this.inFlight = new Semaphore(this.maxConcurrency, true);
+        this.pendingDocuments = new Semaphore(this.maxConcurrency, true);
+        int threads = ocrThreads > 0 ? ocrThreads : Runtime.getRuntime().availableProcessors();
+        this.ocrExecutor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("ocr-"));
+        this.pdfTimer = documentTimer(meterRegistry, "pdf");
+        this.imageTimer = documentTimer(meterRegistry, "image");
+        this.maxDocumentBytes = maxDocumentSize.toBytes();
+        this.maxHtmlBytes = maxHtmlSize.toBytes();
+        this.downloadDirectory = downloadDirectory == null || downloadDirectory.isBlank()
+                ? null
+                : Path.of(downloadDirectory);
+    }
+
+    private static Timer documentTimer(MeterRegistry meterRegistry, String type) {
+        return Timer.builder("ocr.document")
+                .description("Time to extract the text of one crawled document")
+                .tag("type", type)
+                .register(meterRegistry);
     }
 
     public OcrCrawlerResponse crawlAndOcr(OcrCrawlerRequest request) {
+        List<OcrResult> results = Collections.synchronizedList(new ArrayList<>());
+        CrawlRun run = newRun(request, results::add, progress -> { });
+        crawl(run);
+        return new OcrCrawlerResponse(run.startUrl, results.size(), List.copyOf(results));
+    }
+
+    /**
+     * Runs a crawl and reports it to {@code events} as it goes, from several threads: results as soon as each
+     * document is done, progress after every URL, and a final {@code COMPLETED} or {@code CANCELLED} event.
+     * Nothing beyond the documents in flight is retained. The crawl can be stopped with {@link #cancel} using the
+     * id from the {@code STARTED} event; it also stops if {@code events} throws, e.g. because the client is gone.
+     *
+     * @throws IllegalArgumentException if the request has no start URL; no event has been sent in that case
+     */
+    public void streamCrawl(OcrCrawlerRequest request, Consumer<OcrCrawlEvent> events) {
+        streamCrawl(UUID.randomUUID().toString(), request, events);
+    }
+
+    /**
+     * Same as {@link #streamCrawl(OcrCrawlerRequest, Consumer)} under an id chosen by the caller, who can then
+     * {@link #cancel} the crawl without waiting for its {@code STARTED} event.
+     */
+    public void streamCrawl(String crawlId, OcrCrawlerRequest request, Consumer<OcrCrawlEvent> events) {
+        Consumer<OcrCrawlEvent> guarded = event -> {
+            try {
+                events.accept(event);
+            } catch (RuntimeException ex) {
+                cancel(crawlId);
+            }
+        };
+        CrawlRun run = newRun(request,
+                result -> guarded.accept(OcrCrawlEvent.result(crawlId, result)),
+                progress -> guarded.accept(OcrCrawlEvent.of(OcrCrawlEvent.Type.PROGRESS, crawlId, progress)));
+        activeCrawls.put(crawlId, run);
+        try {
+            guarded.accept(OcrCrawlEvent.of(OcrCrawlEvent.Type.STARTED, crawlId, null));
+            crawl(run);
+            OcrCrawlEvent.Type outcome = run.cancelled ? OcrCrawlEvent.Type.CANCELLED : OcrCrawlEvent.Type.COMPLETED;
+            guarded.accept(OcrCrawlEvent.of(outcome, crawlId, run.progress()));
+        } catch (RuntimeException ex) {
+            guarded.accept(OcrCrawlEvent.failed(crawlId, ex.getMessage()));
+        } finally {
+            activeCrawls.remove(crawlId);
+        }
+    }
+
+    /**
+     * Stops a streamed crawl: no new URLs are scheduled, in-flight fetches are interrupted and their results
+     * dropped.
+     *
+     * @return {@code false} if no crawl with that id is running on this node
+     */
+    public boolean cancel(String crawlId) {
+        CrawlRun run = activeCrawls.get(crawlId);
+        if (run == null) {
+            return false;
+        }
+        run.cancelled = true;
+        return true;
+    }
+
+    private CrawlRun newRun(
+            OcrCrawlerRequest request,
+            Consumer<OcrResult> sink,
+            Consumer<OcrCrawlEvent.Progress> progress) {
         String startUrl = Optional.ofNullable(request.startUrl())
                 .filter(value -> !value.isBlank())
                 .orElseThrow(() -> new IllegalArgumentException("startUrl is required"));
-        int maxDepth = Optional.ofNullable(request.maxDepth()).orElse(1);
-        int maxFiles = Optional.ofNullable(request.maxFiles()).orElse(10);
-
-        Queue<UrlDepth> queue = new ArrayDeque<>();
-        Set<String> visited = new HashSet<>();
-        List<OcrResult> results = new ArrayList<>();
-
-        queue.add(new UrlDepth(startUrl, 0));
+        int maxDepth = Optional.ofNullable(request.maxDepth()).orElse(DEFAULT_MAX_DEPTH);
+        int maxFiles = Optional.ofNullable(request.maxFiles()).orElse(DEFAULT_MAX_FILES);
+        return new CrawlRun(startUrl, maxDepth, maxFiles, sink, progress);
+    }
 
-        while (!queue.isEmpty() && results.size() < maxFiles) {
-            UrlDepth current = queue.poll();
-            if (current == null || !visited.add(current.url())) {
-                continue;
+    /**
+     * Hands frontier URLs to fetch tasks, at most {@code max-concurrency} per crawl. Node-wide fetch slots are only
+     * taken inside {@link #fetch} once the URL's host has a free slot, so tasks queued behind one busy host do not
+     * hold slots that other crawls could use.
+     */
+    private void crawl(CrawlRun run) {
+        run.frontier.add(new UrlDepth(run.startUrl, 0));
+        Semaphore tasks = new Semaphore(maxConcurrency);
+        try (ExecutorService fetchers = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (!run.filesExhausted() && !run.cancelled) {
+                UrlDepth next = run.frontier.poll(FRONTIER_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (next == null) {
+                    if (run.active.get() == 0 && run.frontier.isEmpty()) {
+                        break;
+                    }
+                    continue;
+                }
+                if (!run.visited.add(next.url())) {
+                    continue;
+                }
+                tasks.acquire();
+                run.active.incrementAndGet();
+                fetchers.execute(() -> {
+                    try {
+                        process(run, next);
+                    } finally {
+                        run.active.decrementAndGet();
+                        tasks.release();
+                        run.urlDone();
+                    }
+                });
             }
-
-            HttpResponse<byte[]> response = fetch(current.url());
-            if (response == null) {
-                results.add(new OcrResult(current.url(), null, null, "Failed to fetch"));
-                continue;
+            if (run.cancelled) {
+                fetchers.shutdownNow();
             }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-            String contentType = response.headers()
-                    .firstValue("Content-Type")
-                    .map(value -> value.split(";")[0].trim())
-                    .orElse("");
+    private void process(CrawlRun run, UrlDepth current) {
+        OcrDocumentCache.Validator validator = documentCache.validator(current.url());
+        CrawlDownloads.Download download;
+        String contentType;
+        HttpHeaders headers;
+        while (true) {
+            try (Fetch fetch = fetch(current.url(), validator)) {
+                if (fetch == null) {
+                    if (run.reserveFile()) {
+                        run.emit(new OcrResult(current.url(), null, null, "Failed to fetch"));
+                    }
+                    return;
+                }
+                HttpResponse<InputStream> response = fetch.response();
+                if (response.statusCode() == HTTP_NOT_MODIFIED) {
+                    String text = validator == null ? null : documentCache.textForNotModified(validator.contentHash());
+                    if (text != null) {
+                        if (run.reserveFile()) {
+                            run.emit(new OcrResult(current.url(), validator.contentType(), text, null));
+                        }
+                        return;
+                    }
+                    if (validator == null) {
+                        // 304 to an unconditional GET; retrying would get the same answer.
+                        if (run.reserveFile()) {
+                            run.emit(new OcrResult(current.url(), null, null, "Failed to fetch"));
+                        }
+                        return;
+                    }
+                    // The cached text was evicted since the last crawl; download the document again, once.
+                    validator = null;
+                    continue;
+                }
 
-            byte[] body = response.body();
-            if (isHtml(contentType)) {
-                if (current.depth() < maxDepth) {
-                    enqueueLinks(current.url(), body, current.depth() + 1, queue, visited);
+                headers = response.headers();
+                contentType = headers.firstValue("Content-Type")
+                        .map(value -> value.split(";")[0].trim())
+                        .orElse("");
+                if (isHtml(contentType)) {
+                    if (current.depth() < run.maxDepth) {
+                        enqueueLinks(current.url(), response.body(), charsetOf(headers), current.depth() + 1,
+                                run.frontier, run.visited);
+                    }
+                    return;
                 }
-                continue;
+                // Anything else is closed unread, which aborts the transfer.
+                if (!isPdf(contentType, current.url()) && !isImage(contentType, current.url())) {
+                    return;
+                }
+                if (!run.reserveFile()) {
+                    return;
+                }
+                long declaredLength = headers.firstValueAsLong("Content-Length").orElse(-1);
+                if (declaredLength > maxDocumentBytes) {
+                    run.emit(new OcrResult(current.url(), contentType, null,
+                            "Document exceeds " + maxDocumentBytes + " bytes"));
+                    return;
+                }
+                try {
+                    pendingDocuments.acquire();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                boolean downloaded = false;
+                try {
+                    download = CrawlDownloads.toTempFile(response.body(), maxDocumentBytes, downloadDirectory);
+                    downloaded = true;
+                } catch (CrawlDownloads.DocumentTooLargeException ex) {
+                    run.emit(new OcrResult(current.url(), contentType, null, ex.getMessage()));
+                    return;
+                } catch (IOException ex) {
+                    run.emit(new OcrResult(current.url(), contentType, null, "Failed to fetch"));
+                    return;
+                } finally {
+                    if (!downloaded) {
+                        pendingDocuments.release();
+                    }
+                }
+                break;
             }
+        }
 
+        // The connection and request slots are released; the temp file and its document slot are held until the
+        // document is extracted.
+        try {
+            String type = contentType;
+            Path file = download.file();
             if (isPdf(contentType, current.url())) {
-                results.add(processPdf(current.url(), contentType, body));
-                continue;
+                run.emit(extractCached(current.url(), type, headers, download,
+                        () -> processPdf(current.url(), type, file)));
+            } else {
+                run.emit(extractCached(current.url(), type, headers, download,
+                        () -> runOnOcrPool(() -> processImage(current.url(), type, file), current.url(), type)));
             }
+        } finally {
+            download.delete();
+            pendingDocuments.release();
+        }
+    }
 
-            if (isImage(contentType, current.url())) {
-                results.add(processImage(current.url(), contentType, body));
-            }
+    /**
+     * Reuses the text of identical bytes seen before under any URL, or extracts it and caches a successful result.
+     * Either way the URL's validators are recorded for a conditional GET on the next crawl.
+     */
+    private OcrResult extractCached(
+            String url,
+            String contentType,
+            HttpHeaders headers,
+            CrawlDownloads.Download download,
+            Supplier<OcrResult> extract) {
+        String etag = headers.firstValue("ETag").orElse(null);
+        String lastModified = headers.firstValue("Last-Modified").orElse(null);
+        String cached = documentCache.text(download.sha256());
+        if (cached != null) {
+            documentCache.remember(url, etag, lastModified, contentType, download.sha256());
+            return new OcrResult(url, contentType, cached, null);
         }
+        OcrResult result = extract.get();
+        if (result.error() == null) {
+            documentCache.put(url, etag, lastModified, contentType, download.sha256(), result.text());
+        }
+        return result;
+    }
 
-        return new OcrCrawlerResponse(startUrl, results.size(), results);
+    private OcrResult runOnOcrPool(Callable<OcrResult> task, String url, String contentType) {
+        Future<OcrResult> future = ocrExecutor.submit(task);
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return new OcrResult(url, contentType, null, "Interrupted");
+        } catch (ExecutionException ex) {
+            return new OcrResult(url, contentType, null, String.valueOf(ex.getCause().getMessage()));
+        }
     }
 
-    private HttpResponse<byte[]> fetch(String url) {
+    /**
+     * Sends the request and returns once the response headers are in; the body is still unread and the host and
+     * node-wide slots stay taken until the returned {@link Fetch} is closed. The host slot is taken first.
+     */
+    private Fetch fetch(String url, OcrDocumentCache.Validator validator) {
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
+            URI uri = URI.create(url);
+            HttpRequest.Builder builder = HttpRequest.newBuilder()
+                    .uri(uri)
                     .timeout(Duration.ofSeconds(20))
-                    .GET()
-                    .build();
-            return httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                    .GET();
+            if (validator != null) {
+                if (validator.etag() != null) {
+                    builder.header("If-None-Match", validator.etag());
+                }
+                if (validator.lastModified() != null) {
+                    builder.header("If-Modified-Since", validator.lastModified());
+                }
+            }
+            HttpRequest request = builder.build();
+            String host = Objects.requireNonNullElse(uri.getHost(), "");
+            HostSlots slots = acquireHost(host);
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException ex) {
+                releaseHost(host, slots);
+                throw ex;
+            }
+            Runnable release = () -> {
+                inFlight.release();
+                releaseHost(host, slots);
+            };
+            try {
+                return new Fetch(httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream()), release);
+            } catch (IOException | InterruptedException | RuntimeException ex) {
+                release.run();
+                throw ex;
+            }
         } catch (InterruptedException ex) {
             Thread.currentThread().interrupt();
             return null;
@@ -119,54 +429,106 @@ public class OcrCrawlerService {
         }
     }
 
-    private void enqueueLinks(String baseUrl, byte[] body, int depth, Queue<UrlDepth> queue, Set<String> visited) {
-        String html = new String(body);
-        Document document = Jsoup.parse(html, baseUrl);
+    private void enqueueLinks(
+            String baseUrl,
+            InputStream body,
+            String charset,
+            int depth,
+            BlockingQueue<UrlDepth> queue,
+            Set<String> visited) {
+        List<String> links;
+        try {
+            links = extractLinks(baseUrl, CrawlDownloads.limit(body, maxHtmlBytes), charset);
+        } catch (IOException ex) {
+            return;
+        }
+        for (String href : links) {
+            if (!visited.contains(href)) {
+                queue.add(new UrlDepth(href, depth));
+            }
+        }
+    }
+
+    /**
+     * Parses HTML in {@code charset}, or, when that is {@code null}, in the charset named by a byte-order mark or
+     * {@code <meta charset>}, falling back to UTF-8.
+     */
+    static List<String> extractLinks(String baseUrl, InputStream body, String charset) throws IOException {
+        Document document = Jsoup.parse(body, charset, baseUrl);
         Elements links = document.select("a[href]");
+        List<String> hrefs = new ArrayList<>(links.size());
         for (Element link : links) {
             String href = link.absUrl("href");
-            if (href.isBlank() || visited.contains(href)) {
-                continue;
+            if (!href.isBlank()) {
+                hrefs.add(href);
             }
-            queue.add(new UrlDepth(href, depth));
         }
+        return hrefs;
     }
 
-    private OcrResult processPdf(String url, String contentType, byte[] body) {
-        try (PDDocument document = PDDocument.load(new ByteArrayInputStream(body))) {
-            PDFRenderer renderer = new PDFRenderer(document);
-            int totalPages = Math.min(pdfMaxPages, document.getNumberOfPages());
-            StringBuilder textBuilder = new StringBuilder();
-            for (int page = 0; page < totalPages; page++) {
-                BufferedImage image = renderer.renderImageWithDPI(page, 300, RenderingMode.QUALITY);
-                textBuilder.append(runOcr(image)).append(System.lineSeparator());
-            }
-            return new OcrResult(url, contentType, textBuilder.toString().trim(), null);
-        } catch (IOException | TesseractException ex) {
-            return new OcrResult(url, contentType, null, ex.getMessage());
+    private static String charsetOf(HttpHeaders headers) {
+        return headers.firstValue("Content-Type")
+                .flatMap(value -> {
+                    for (String parameter : value.split(";")) {
+                        String trimmed = parameter.trim();
+                        if (trimmed.regionMatches(true, 0, "charset=", 0, 8)) {
+                            return supportedCharset(trimmed.substring(8).replace("\"", "").trim());
+                        }
+                    }
+                    return Optional.empty();
+                })
+                .orElse(null);
+    }
+
+    private static Optional<String> supportedCharset(String name) {
+        try {
+            return Charset.isSupported(name) ? Optional.of(name) : Optional.empty();
+        } catch (IllegalArgumentException ex) {
+            return Optional.empty();
         }
     }
 
-    private OcrResult processImage(String url, String contentType, byte[] body) {
+    /**
+     * Runs on the fetch thread: the PDF's pages are spread over the OCR pool by {@link PdfTextExtractor}, so this
+     * thread only waits.
+     */
+    private OcrResult processPdf(String url, String contentType, Path file) {
+        long start = System.nanoTime();
         try {
-            BufferedImage image = ImageIO.read(new ByteArrayInputStream(body));
+            PdfTextExtractor.PdfText pdf = pdfExtractor.extract(file, ocrExecutor);
+            return new OcrResult(url, contentType, pdf.text(), null, elapsedMillis(pdfTimer, start), pdf.pages(),
+                    pdf.ocrPages());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return new OcrResult(url, contentType, null, "Interrupted", elapsedMillis(pdfTimer, start), null, null);
+        } catch (ExecutionException ex) {
+            return new OcrResult(url, contentType, null, String.valueOf(ex.getCause().getMessage()),
+                    elapsedMillis(pdfTimer, start), null, null);
+        }
+    }
+
+    private OcrResult processImage(String url, String contentType, Path file) {
+        long start = System.nanoTime();
+        try {
+            BufferedImage image = ImageIO.read(file.toFile());
             if (image == null) {
                 return new OcrResult(url, contentType, null, "Unsupported image format");
             }
             String text = runOcr(image);
-            return new OcrResult(url, contentType, text, null);
+            return new OcrResult(url, contentType, text, null, elapsedMillis(imageTimer, start), null, null);
         } catch (IOException | TesseractException ex) {
-            return new OcrResult(url, contentType, null, ex.getMessage());
+            return new OcrResult(url, contentType, null, ex.getMessage(), elapsedMillis(imageTimer, start), null, null);
         }
     }
 
+    private static long elapsedMillis(Timer timer, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
     private String runOcr(BufferedImage image) throws TesseractException {
-        Tesseract tesseract = new Tesseract();
-        if (tesseractDataPath != null && !tesseractDataPath.isBlank()) {
-            tesseract.setDatapath(tesseractDataPath);
-        }
-        tesseract.setLanguage(tesseractLanguage);
-        return tesseract.doOCR(image);
+        return tesseractPool.recognize(image);
     }
 
     private boolean isHtml(String contentType) {
@@ -189,6 +551,130 @@ public class OcrCrawlerService {
                 || lower.endsWith(".bmp");
     }
 
+    @Override
+    public void destroy() {
+        ocrExecutor.shutdownNow();
+    }
+
+    /**
+     * State of one crawl, shared by its fetch tasks. Documents reserve one of the {@code maxFiles} slots before
+     * they are OCR'd, so concurrent tasks never produce more than {@code maxFiles} results.
+     */
+    private static final class CrawlRun {
+        private final String startUrl;
+        private final int maxDepth;
+        private final int maxFiles;
+        private final Consumer<OcrResult> sink;
+        private final Consumer<OcrCrawlEvent.Progress> progressSink;
+        private final BlockingQueue<UrlDepth> frontier = new LinkedBlockingQueue<>();
+        private final Set<String> visited = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger reservedFiles = new AtomicInteger();
+        private final AtomicInteger urlsDone = new AtomicInteger();
+        private final AtomicInteger filesDone = new AtomicInteger();
+        private volatile boolean cancelled;
+
+        private CrawlRun(
+                String startUrl,
+                int maxDepth,
+                int maxFiles,
+                Consumer<OcrResult> sink,
+                Consumer<OcrCrawlEvent.Progress> progressSink) {
+            this.startUrl = startUrl;
+            this.maxDepth = maxDepth;
+            this.maxFiles = maxFiles;
+            this.sink = sink;
+            this.progressSink = progressSink;
+        }
+
+        boolean reserveFile() {
+            return !cancelled && reservedFiles.getAndIncrement() < maxFiles;
+        }
+
+        void emit(OcrResult result) {
+            if (!cancelled) {
+                filesDone.incrementAndGet();
+                sink.accept(result);
+            }
+        }
+
+        void urlDone() {
+            urlsDone.incrementAndGet();
+            if (!cancelled) {
+                progressSink.accept(progress());
+            }
+        }
+
+        OcrCrawlEvent.Progress progress() {
+            return new OcrCrawlEvent.Progress(urlsDone.get(), filesDone.get(), active.get(), frontier.size());
+        }
+
+        boolean filesExhausted() {
+            return reservedFiles.get() >= maxFiles;
+        }
+    }
+
+    /**
+     * Waits for one of the host's {@code per-host-concurrency} slots. The host's entry lives only while some fetch
+     * holds or waits for a slot, so the map does not grow with every host ever crawled.
+     */
+    private HostSlots acquireHost(String host) throws InterruptedException {
+        HostSlots slots = hostSlots.compute(host, (key, existing) -> {
+            HostSlots entry = existing != null ? existing : new HostSlots(new Semaphore(perHostConcurrency, true));
+            entry.users++;
+            return entry;
+        });
+        try {
+            slots.permits().acquire();
+        } catch (InterruptedException ex) {
+            leaveHost(host);
+            throw ex;
+        }
+        return slots;
+    }
+
+    private void releaseHost(String host, HostSlots slots) {
+        slots.permits().release();
+        leaveHost(host);
+    }
+
+    private void leaveHost(String host) {
+        hostSlots.computeIfPresent(host, (key, entry) -> --entry.users == 0 ? null : entry);
+    }
+
+    /**
+     * A host's fetch slots; {@code users} counts holders and waiters and is only changed inside map updates.
+     */
+    private static final class HostSlots {
+        private final Semaphore permits;
+        private int users;
+
+        private HostSlots(Semaphore permits) {
+            this.permits = permits;
+        }
+
+        private Semaphore permits() {
+            return permits;
+        }
+    }
+
+    /**
+     * A response whose body has not been read yet. Closing it closes the body, which aborts an unfinished
+     * transfer, and frees the fetch slots.
+     */
+    private record Fetch(HttpResponse<InputStream> response, Runnable release) implements AutoCloseable {
+        @Override
+        public void close() {
+            try {
+                response.body().close();
+            } catch (IOException ex) {
+                // Nothing left to read from a broken connection.
+            } finally {
+                release.run();
+            }
+        }
+    }
+
     private record UrlDepth(String url, int depth) {
         private UrlDepth {
             Objects.requireNonNull(url, "url");
@@ -0,0 +1,294 @@
+package com.recommendation.ocr.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Postgres-backed cache that lets re-crawls skip work they have already done, in two layers:
+ * <ul>
+ *     <li>per URL, the {@code ETag}/{@code Last-Modified} validators and content hash of the last OCR'd document,
+ *     so the crawler can send a conditional GET and reuse the text on {@code 304 Not Modified};</li>
+ *     <li>per SHA-256 of the document bytes, the extracted text, so identical files served under different URLs
+ *     (logos, headers, mirrored PDFs) are OCR'd once.</li>
+ * </ul>
+ * Text is keyed by the document hash combined with a fingerprint of the extraction settings (Tesseract language,
+ * {@code ocr.pdf.*}), so changing them re-extracts documents instead of serving text produced the old way.
+ * Text entries are evicted least-recently-used once their total size exceeds {@code ocr.cache.max-size}; validators
+ * whose text is gone, including those left behind by other settings, are dropped with them. Cache failures are
+ * logged and treated as misses, never as crawl errors.
+ */
+@Component
+@Slf4j
+public class OcrDocumentCache {
+
+    private static final Duration TOUCH_GRANULARITY = Duration.ofHours(1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final String validatorTable;
+    private final String textTable;
+    private final byte[] settingsFingerprint;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter notModified;
+    private volatile boolean ready;
+
+    public OcrDocumentCache(
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${ocr.cache.enabled:true}") boolean enabled,
+            @Value("${ocr.cache.max-size:512MB}") DataSize maxSize,
+            @Value("${ocr.cache.validator-table:ocr_url_validator}") String validatorTable,
+            @Value("${ocr.cache.text-table:ocr_text_cache}") String textTable,
+            @Value("${ocr.tesseract.language:eng}") String language,
+            @Value("${ocr.pdf.max-pages:5}") int pdfMaxPages,
+            @Value("${ocr.pdf.text-layer:true}") boolean pdfTextLayer,
+            @Value("${ocr.pdf.min-text-chars:20}") int pdfMinTextChars,
+            @Value("${ocr.pdf.min-dpi:150}") int pdfMinDpi,
+            @Value("${ocr.pdf.max-dpi:300}") int pdfMaxDpi,
+            @Value("${ocr.pdf.max-pixels:9000000}") long pdfMaxPixels) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.maxBytes = maxSize.toBytes();
+        this.validatorTable = validatorTable;
+        this.textTable = textTable;
+        String settings = "language=%s;max-pages=%d;text-layer=%b;min-text-chars=%d;min-dpi=%d;max-dpi=%d;max-pixels=%d"
+                .formatted(language, pdfMaxPages, pdfTextLayer, pdfMinTextChars, pdfMinDpi, pdfMaxDpi, pdfMaxPixels);
+        this.settingsFingerprint = sha256(settings.getBytes(StandardCharsets.UTF_8));
+        this.hits = lookupCounter(meterRegistry, "hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+        this.notModified = lookupCounter(meterRegistry, "not_modified");
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ocr.cache.lookups")
+                .description("OCR cache lookups by outcome; not_modified counts 304 revalidations")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Validators of the document last OCR'd from a URL, sent as {@code If-None-Match}/{@code If-Modified-Since}.
+     */
+    record Validator(String etag, String lastModified, byte[] contentHash, String contentType) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute("""
+                    CREATE TABLE IF NOT EXISTS %s (
+                        content_hash bytea PRIMARY KEY,
+                        text text NOT NULL,
+                        size_bytes int NOT NULL,
+                        created_at timestamptz NOT NULL DEFAULT now(),
+                        last_used_at timestamptz NOT NULL DEFAULT now()
+                    )
+                    """.formatted(textTable));
+            jdbcTemplate.execute("""
+                    CREATE TABLE IF NOT EXISTS %s (
+                        url text PRIMARY KEY,
+                        etag text,
+                        last_modified text,
+                        content_hash bytea NOT NULL,
+                        content_type text,
+                        fetched_at timestamptz NOT NULL DEFAULT now()
+                    )
+                    """.formatted(validatorTable));
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS %1$s_last_used_idx ON %1$s (last_used_at)"
+                    .formatted(textTable));
+            ready = true;
+        } catch (DataAccessException ex) {
+            log.warn("OCR cache tables could not be prepared; crawls will run uncached.", ex);
+        }
+    }
+
+    Validator validator(String url) {
+        if (!ready) {
+            return null;
+        }
+        try {
+            List<Validator> validators = jdbcTemplate.query(
+                    "SELECT etag, last_modified, content_hash, content_type FROM %s WHERE url = ?"
+                            .formatted(validatorTable),
+                    (rs, rowNum) -> new Validator(rs.getString("etag"), rs.getString("last_modified"),
+                            rs.getBytes("content_hash"), rs.getString("content_type")),
+                    url);
+            return validators.isEmpty() ? null : validators.get(0);
+        } catch (DataAccessException ex) {
+            log.debug("OCR cache validator lookup failed for {}.", url, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the cached text of a revalidated document, or {@code null} if it has been evicted.
+     */
+    String textForNotModified(byte[] contentHash) {
+        String text = lookup(contentHash);
+        if (text != null) {
+            notModified.increment();
+        }
+        return text;
+    }
+
+    /**
+     * Returns the cached text for a downloaded document, or {@code null} on a miss.
+     */
+    String text(byte[] contentHash) {
+        if (!ready) {
+            return null;
+        }
+        String text = lookup(contentHash);
+        (text != null ? hits : misses).increment();
+        return text;
+    }
+
+    /**
+     * Records the text of a freshly OCR'd document and the URL's validators. Only successful extractions are stored.
+     */
+    void put(String url, String etag, String lastModified, String contentType, byte[] contentHash, String text) {
+        if (!ready || text == null) {
+            return;
+        }
+        String storedText = OcrPageWriter.stripNul(text);
+        try {
+            jdbcTemplate.update("""
+                    INSERT INTO %s (content_hash, text, size_bytes) VALUES (?, ?, octet_length(?))
+                    ON CONFLICT (content_hash) DO UPDATE SET last_used_at = now()
+                    """.formatted(textTable),
+                    textKey(contentHash), storedText, storedText);
+            remember(url, etag, lastModified, contentType, contentHash);
+        } catch (DataAccessException ex) {
+            log.debug("OCR cache write failed for {}.", url, ex);
+        }
+    }
+
+    /**
+     * Points a URL at already cached text, e.g. after a hash hit under a new URL or a changed ETag.
+     */
+    void remember(String url, String etag, String lastModified, String contentType, byte[] contentHash) {
+        if (!ready || (etag == null && lastModified == null)) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("""
+                    INSERT INTO %s (url, etag, last_modified, content_hash, content_type, fetched_at)
+                    VALUES (?, ?, ?, ?, ?, now())
+                    ON CONFLICT (url) DO UPDATE SET etag = EXCLUDED.etag,
+                                                    last_modified = EXCLUDED.last_modified,
+                                                    content_hash = EXCLUDED.content_hash,
+                                                    content_type = EXCLUDED.content_type,
+                                                    fetched_at = EXCLUDED.fetched_at
+                    """.formatted(validatorTable),
+                    url, etag, lastModified, contentHash, contentType);
+        } catch (DataAccessException ex) {
+            log.debug("OCR cache validator write failed for {}.", url, ex);
+        }
+    }
+
+    /**
+     * Drops the least recently used texts beyond {@code ocr.cache.max-size}, and validators pointing at them.
+     */
+    @Scheduled(fixedDelayString = "${ocr.cache.evict-interval:10m}")
+    public void evict() {
+        if (!ready) {
+            return;
+        }
+        try {
+            int evicted = jdbcTemplate.update("""
+                    DELETE FROM %1$s
+                    WHERE content_hash IN (
+                        SELECT content_hash
+                        FROM (
+                            SELECT content_hash,
+                                   sum(size_bytes) OVER (ORDER BY last_used_at DESC, content_hash) AS retained
+                            FROM %1$s
+                        ) ranked
+                        WHERE retained > ?
+                    )
+                    """.formatted(textTable),
+                    maxBytes);
+            if (evicted > 0) {
+                jdbcTemplate.update("""
+                        DELETE FROM %1$s v
+                        WHERE NOT EXISTS (
+                            SELECT 1 FROM %2$s t WHERE t.content_hash = sha256(?::bytea || v.content_hash)
+                        )
+                        """.formatted(validatorTable, textTable),
+                        settingsFingerprint);
+                log.info("Evicted {} OCR cache entries to stay under {} bytes.", evicted, maxBytes);
+            }
+        } catch (DataAccessException ex) {
+            log.warn("OCR cache eviction failed.", ex);
+        }
+    }
+
+    private String lookup(byte[] contentHash) {
+        if (!ready || contentHash == null) {
+            return null;
+        }
+        byte[] key = textKey(contentHash);
+        try {
+            List<CachedText> texts = jdbcTemplate.query("""
+                    SELECT text, last_used_at < now() - make_interval(secs => ?) AS stale
+                    FROM %s
+                    WHERE content_hash = ?
+                    """.formatted(textTable),
+                    (rs, rowNum) -> new CachedText(rs.getString("text"), rs.getBoolean("stale")),
+                    TOUCH_GRANULARITY.toSeconds(), key);
+            if (texts.isEmpty()) {
+                return null;
+            }
+            // Touch at most once per TOUCH_GRANULARITY, so hot entries do not turn every hit into a write.
+            if (texts.get(0).stale()) {
+                jdbcTemplate.update("UPDATE %s SET last_used_at = now() WHERE content_hash = ?".formatted(textTable),
+                        key);
+            }
+            return texts.get(0).text();
+        } catch (DataAccessException ex) {
+            log.debug("OCR cache lookup failed.", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Key of the text extracted from a document under the current settings: SHA-256 of the settings fingerprint
+     * followed by the document hash, matching {@code sha256(fingerprint || content_hash)} in SQL.
+     */
+    private byte[] textKey(byte[] contentHash) {
+        byte[] input = Arrays.copyOf(settingsFingerprint, settingsFingerprint.length + contentHash.length);
+        System.arraycopy(contentHash, 0, input, settingsFingerprint.length, contentHash.length);
+        return sha256(input);
+    }
+
+    private static byte[] sha256(byte[] input) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(input);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    private record CachedText(String text, boolean stale) {
+    }
+}
@@ -0,0 +1,121 @@
+package com.recommendation.ocr.service;
+
+import com.recommendation.embedding.EmbeddingJobProperties;
+import com.recommendation.ocr.model.OcrResult;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes OCR'd documents into the page table the embedding job reads ({@code embedding.job.page-table}), keyed by
+ * their source URL, so crawled text is embedded by the next {@code MISSING} or {@code INCREMENTAL} run. A batch is
+ * one {@code INSERT ... SELECT FROM unnest(...)} statement; re-crawled documents only touch their row when the
+ * text changed, which keeps unchanged pages out of incremental re-embedding.
+ * <p>
+ * The upsert needs a unique index on the URL column; {@code docs/ocr_pages.sql} creates it without blocking writes.
+ */
+@Component
+public class OcrPageWriter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EmbeddingJobProperties properties;
+    private final String urlColumn;
+    private final String titleColumn;
+    private final String upsertSql;
+
+    public OcrPageWriter(
+            JdbcTemplate jdbcTemplate,
+            EmbeddingJobProperties properties,
+            @Value("${ocr.jobs.page-url-column:url}") String urlColumn,
+            @Value("${ocr.jobs.page-title-column:title}") String titleColumn) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.urlColumn = urlColumn;
+        this.titleColumn = titleColumn;
+        this.upsertSql = buildUpsertSql();
+    }
+
+    /**
+     * Upserts the successful results that carry text; failed and empty results are skipped.
+     *
+     * @return the number of pages inserted or changed
+     */
+    int write(Collection<OcrResult> results) {
+        // ON CONFLICT cannot touch one row twice in a statement, so the last result per URL wins.
+        Map<String, OcrResult> byUrl = new LinkedHashMap<>();
+        for (OcrResult result : results) {
+            if (result.error() == null && result.text() != null && !result.text().isBlank()) {
+                byUrl.put(result.sourceUrl(), result);
+            }
+        }
+        if (byUrl.isEmpty()) {
+            return 0;
+        }
+        String[] urls = new String[byUrl.size()];
+        String[] titles = new String[urls.length];
+        String[] contents = new String[urls.length];
+        int i = 0;
+        for (OcrResult result : byUrl.values()) {
+            urls[i] = result.sourceUrl();
+            titles[i] = titleOf(result.sourceUrl());
+            contents[i] = stripNul(result.text()).trim();
+            i++;
+        }
+        return jdbcTemplate.update(upsertSql, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("text", urls));
+            ps.setArray(2, connection.createArrayOf("text", titles));
+            ps.setArray(3, connection.createArrayOf("text", contents));
+        });
+    }
+
+    static String titleOf(String url) {
+        try {
+            String path = URI.create(url).getPath();
+            if (path != null) {
+                String name = path.substring(path.lastIndexOf('/') + 1);
+                if (!name.isBlank()) {
+                    return URLDecoder.decode(name, StandardCharsets.UTF_8);
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            // Fall back to the raw URL.
+        }
+        return url;
+    }
+
+    /**
+     * Removes NUL characters, which OCR output occasionally contains and Postgres text cannot hold.
+     */
+    static String stripNul(String text) {
+        return text.indexOf('\0') < 0 ? text : text.replace("\0", "");
+    }
+
+    private String buildUpsertSql() {
+        String updatedAt = properties.pageUpdatedAtColumn();
+        boolean touchUpdatedAt = updatedAt != null && !updatedAt.isBlank();
+        return """
+                INSERT INTO %1$s AS p (%2$s, %3$s, %4$s%5$s)
+                SELECT u.url, u.title, u.content%6$s
+                FROM unnest(?::text[], ?::text[], ?::text[]) AS u(url, title, content)
+                ON CONFLICT (%2$s)
+                DO UPDATE SET %3$s = EXCLUDED.%3$s,
+                              %4$s = EXCLUDED.%4$s%7$s
+                WHERE p.%4$s IS DISTINCT FROM EXCLUDED.%4$s
+                """.formatted(
+                properties.pageTable(),
+                urlColumn,
+                titleColumn,
+                properties.pageContentColumn(),
+                touchUpdatedAt ? ", " + updatedAt : "",
+                touchUpdatedAt ? ", now()" : "",
+                touchUpdatedAt ? ", %1$s = EXCLUDED.%1$s".formatted(updatedAt) : "");
+    }
+}
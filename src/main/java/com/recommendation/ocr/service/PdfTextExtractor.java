@@ -0,0 +1,169 @@
+package com.recommendation.ocr.service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import net.sourceforge.tess4j.TesseractException;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Extracts the text of the first {@code ocr.pdf.max-pages} pages of a PDF. Pages with a usable text layer are read
+ * directly; only the rest are rendered and OCR'd, one task per page on the caller's OCR pool. PDFBox documents are
+ * not thread-safe, so each page task opens its own document over the downloaded file.
+ * <p>
+ * Pages are rendered in grayscale at a DPI derived from their size: {@code ocr.pdf.max-dpi} for letter/A4 and
+ * smaller, lower for large formats so no page exceeds {@code ocr.pdf.max-pixels}, but never below
+ * {@code ocr.pdf.min-dpi}.
+ */
+@Component
+public class PdfTextExtractor {
+
+    private static final float POINTS_PER_INCH = 72f;
+
+    private final TesseractEnginePool tesseractPool;
+    private final int maxPages;
+    private final boolean useTextLayer;
+    private final int minTextChars;
+    private final int minDpi;
+    private final int maxDpi;
+    private final long maxPixels;
+
+    public PdfTextExtractor(
+            TesseractEnginePool tesseractPool,
+            @Value("${ocr.pdf.max-pages:5}") int maxPages,
+            @Value("${ocr.pdf.text-layer:true}") boolean useTextLayer,
+            @Value("${ocr.pdf.min-text-chars:20}") int minTextChars,
+            @Value("${ocr.pdf.min-dpi:150}") int minDpi,
+            @Value("${ocr.pdf.max-dpi:300}") int maxDpi,
+            @Value("${ocr.pdf.max-pixels:9000000}") long maxPixels) {
+        this.tesseractPool = tesseractPool;
+        this.maxPages = maxPages;
+        this.useTextLayer = useTextLayer;
+        this.minTextChars = minTextChars;
+        this.minDpi = Math.max(1, Math.min(minDpi, maxDpi));
+        this.maxDpi = Math.max(1, maxDpi);
+        this.maxPixels = maxPixels;
+    }
+
+    record PdfText(String text, int pages, int ocrPages) {
+    }
+
+    private record PageScan(int index, float dpi) {
+    }
+
+    private record TextLayer(String[] texts, List<PageScan> scans) {
+    }
+
+    /**
+     * Reads the text layer, then OCRs the pages without one in parallel on {@code pool}. Blocks until every page
+     * is done; if interrupted, the outstanding page tasks are cancelled.
+     *
+     * @throws ExecutionException if reading the document or OCR'ing any page failed
+     */
+    PdfText extract(Path file, ExecutorService pool) throws ExecutionException, InterruptedException {
+        TextLayer layer = await(pool.submit(() -> readTextLayer(file)));
+        String[] texts = layer.texts();
+        List<Future<String>> ocr = new ArrayList<>(layer.scans().size());
+        try {
+            for (PageScan scan : layer.scans()) {
+                ocr.add(pool.submit(() -> ocrPage(file, scan)));
+            }
+            for (int i = 0; i < ocr.size(); i++) {
+                texts[layer.scans().get(i).index()] = ocr.get(i).get();
+            }
+        } finally {
+            for (Future<String> future : ocr) {
+                future.cancel(true);
+            }
+        }
+        StringBuilder text = new StringBuilder();
+        for (String page : texts) {
+            if (page != null && !page.isBlank()) {
+                if (!text.isEmpty()) {
+                    text.append(System.lineSeparator());
+                }
+                text.append(page);
+            }
+        }
+        return new PdfText(text.toString(), texts.length, ocr.size());
+    }
+
+    private TextLayer readTextLayer(Path file) throws IOException {
+        try (PDDocument document = Loader.loadPDF(file.toFile())) {
+            int pages = Math.min(maxPages, document.getNumberOfPages());
+            String[] texts = new String[pages];
+            List<PageScan> scans = new ArrayList<>();
+            PDFTextStripper stripper = useTextLayer ? new PDFTextStripper() : null;
+            for (int page = 0; page < pages; page++) {
+                if (stripper != null) {
+                    stripper.setStartPage(page + 1);
+                    stripper.setEndPage(page + 1);
+                    String text = stripper.getText(document).trim();
+                    if (isUsable(text)) {
+                        texts[page] = text;
+                        continue;
+                    }
+                }
+                scans.add(new PageScan(page, dpiFor(document.getPage(page).getCropBox())));
+            }
+            return new TextLayer(texts, scans);
+        }
+    }
+
+    private String ocrPage(Path file, PageScan scan) throws IOException, TesseractException {
+        try (PDDocument document = Loader.loadPDF(file.toFile())) {
+            PDFRenderer renderer = new PDFRenderer(document);
+            BufferedImage image = renderer.renderImageWithDPI(scan.index(), scan.dpi(), ImageType.GRAY);
+            return tesseractPool.recognize(image).trim();
+        }
+    }
+
+    /**
+     * A text layer is usable when it has enough letters or digits, and they make up at least half of the
+     * non-blank characters; scanned pages often carry an empty or glyph-garbage layer.
+     */
+    boolean isUsable(String text) {
+        int alphanumeric = 0;
+        int visible = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                visible++;
+                if (Character.isLetterOrDigit(c)) {
+                    alphanumeric++;
+                }
+            }
+        }
+        return alphanumeric >= minTextChars && alphanumeric * 2 >= visible;
+    }
+
+    float dpiFor(PDRectangle box) {
+        double squareInches = (box.getWidth() / POINTS_PER_INCH) * (box.getHeight() / POINTS_PER_INCH);
+        if (!(squareInches > 0)) {
+            return maxDpi;
+        }
+        double dpi = Math.sqrt(maxPixels / squareInches);
+        return (float) Math.max(minDpi, Math.min(maxDpi, Math.floor(dpi)));
+    }
+
+    private static <T> T await(Future<T> future) throws ExecutionException, InterruptedException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            throw ex;
+        }
+    }
+}
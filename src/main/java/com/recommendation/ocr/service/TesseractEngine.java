@@ -0,0 +1,77 @@
+package com.recommendation.ocr.service;
+
+import com.sun.jna.Pointer;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import net.sourceforge.tess4j.ITessAPI.TessBaseAPI;
+import net.sourceforge.tess4j.TessAPI1;
+import net.sourceforge.tess4j.TesseractException;
+import net.sourceforge.tess4j.util.ImageIOHelper;
+
+/**
+ * One initialized Tesseract engine. {@link net.sourceforge.tess4j.Tesseract#doOCR} loads the language model and
+ * tears the engine down on every call; this keeps the native {@code TessBaseAPI} handle alive between images and
+ * only clears the per-image state. Not thread-safe: {@link TesseractEnginePool} hands each engine to one caller at
+ * a time.
+ */
+final class TesseractEngine implements AutoCloseable {
+
+    private final TessBaseAPI handle;
+    private int uses;
+    private boolean closed;
+
+    private TesseractEngine(TessBaseAPI handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * @param dataPath the tessdata directory, or {@code null} for {@code TESSDATA_PREFIX}
+     */
+    static TesseractEngine start(String dataPath, String language) throws TesseractException {
+        TessBaseAPI handle = TessAPI1.TessBaseAPICreate();
+        int status = TessAPI1.TessBaseAPIInit3(handle, dataPath, language);
+        if (status != 0) {
+            TessAPI1.TessBaseAPIDelete(handle);
+            throw new TesseractException("Tesseract init failed for language " + language + " (status " + status + ").");
+        }
+        return new TesseractEngine(handle);
+    }
+
+    String recognize(BufferedImage image) throws TesseractException {
+        if (closed) {
+            throw new IllegalStateException("Tesseract engine is closed.");
+        }
+        uses++;
+        ByteBuffer pixels = ImageIOHelper.convertImageData(image);
+        int bitsPerPixel = image.getColorModel().getPixelSize();
+        int bytesPerLine = (int) Math.ceil(image.getWidth() * bitsPerPixel / 8.0);
+        TessAPI1.TessBaseAPISetImage(
+                handle, pixels, image.getWidth(), image.getHeight(), bitsPerPixel / 8, bytesPerLine);
+        Pointer text = TessAPI1.TessBaseAPIGetUTF8Text(handle);
+        try {
+            if (text == null) {
+                throw new TesseractException("Tesseract returned no text.");
+            }
+            return text.getString(0, StandardCharsets.UTF_8.name());
+        } finally {
+            if (text != null) {
+                TessAPI1.TessDeleteText(text);
+            }
+            TessAPI1.TessBaseAPIClear(handle);
+        }
+    }
+
+    int uses() {
+        return uses;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            TessAPI1.TessBaseAPIEnd(handle);
+            TessAPI1.TessBaseAPIDelete(handle);
+        }
+    }
+}
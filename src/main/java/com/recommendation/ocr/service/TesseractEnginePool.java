@@ -0,0 +1,176 @@
+package com.recommendation.ocr.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.tess4j.TesseractException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded pool of initialized {@link TesseractEngine}s, sized like the OCR thread pool by default so every OCR
+ * thread can hold one engine. Engines are created up front after startup (warm-up) or lazily when warm-up failed.
+ * An engine that throws is closed and replaced on the next borrow; healthy engines are also recycled after
+ * {@code ocr.tesseract.max-uses} images to cap native memory growth.
+ */
+@Component
+@Slf4j
+public class TesseractEnginePool implements DisposableBean {
+
+    private final String dataPath;
+    private final String language;
+    private final int size;
+    private final int maxUses;
+    private final Duration borrowTimeout;
+    private final BlockingQueue<TesseractEngine> idle = new LinkedBlockingQueue<>();
+    private final Object lock = new Object();
+    private final Timer recognizeTimer;
+    private final Counter evictions;
+    private int created;
+    private boolean closed;
+
+    public TesseractEnginePool(
+            @Value("${ocr.tesseract.data-path:}") String dataPath,
+            @Value("${ocr.tesseract.language:eng}") String language,
+            @Value("${ocr.tesseract.pool-size:${ocr.threads:0}}") int size,
+            @Value("${ocr.tesseract.max-uses:1000}") int maxUses,
+            @Value("${ocr.tesseract.borrow-timeout:60s}") Duration borrowTimeout,
+            MeterRegistry meterRegistry) {
+        this.dataPath = dataPath == null || dataPath.isBlank() ? null : dataPath;
+        this.language = language;
+        this.size = size > 0 ? size : Runtime.getRuntime().availableProcessors();
+        this.maxUses = maxUses;
+        this.borrowTimeout = borrowTimeout;
+        this.recognizeTimer = Timer.builder("ocr.recognize")
+                .description("Latency of OCR on one image or rendered PDF page")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("ocr.engine.evictions")
+                .description("Tesseract engines closed after a failure or after reaching max-uses")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        List<TesseractEngine> started = new ArrayList<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                TesseractEngine engine = create();
+                if (engine == null) {
+                    break;
+                }
+                started.add(engine);
+            }
+            log.info("Tesseract pool warmed up with {} engines for language {}.", started.size(), language);
+        } catch (TesseractException | LinkageError e) {
+            log.warn("Tesseract warm-up failed; engines will be created on first use.", e);
+        } finally {
+            started.forEach(idle::offer);
+        }
+    }
+
+    /**
+     * OCRs {@code image} with a pooled engine, waiting up to {@code ocr.tesseract.borrow-timeout} for one.
+     */
+    public String recognize(BufferedImage image) throws TesseractException {
+        TesseractEngine engine = borrow();
+        boolean healthy = false;
+        try {
+            long start = System.nanoTime();
+            String text = engine.recognize(image);
+            recognizeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            healthy = true;
+            return text;
+        } catch (RuntimeException e) {
+            throw new TesseractException("Tesseract engine failed: " + e.getMessage(), e);
+        } finally {
+            release(engine, healthy);
+        }
+    }
+
+    private TesseractEngine borrow() throws TesseractException {
+        TesseractEngine engine = idle.poll();
+        if (engine != null) {
+            return engine;
+        }
+        engine = create();
+        if (engine != null) {
+            return engine;
+        }
+        try {
+            engine = idle.poll(borrowTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TesseractException("Interrupted while waiting for a Tesseract engine.");
+        }
+        if (engine == null) {
+            throw new TesseractException("No Tesseract engine available within " + borrowTimeout + ".");
+        }
+        return engine;
+    }
+
+    /**
+     * Starts a new engine if the pool is below its size, otherwise returns {@code null}.
+     */
+    private TesseractEngine create() throws TesseractException {
+        synchronized (lock) {
+            if (closed || created >= size) {
+                return null;
+            }
+            created++;
+        }
+        try {
+            return TesseractEngine.start(dataPath, language);
+        } catch (TesseractException | RuntimeException | LinkageError e) {
+            synchronized (lock) {
+                created--;
+            }
+            throw e;
+        }
+    }
+
+    private void release(TesseractEngine engine, boolean healthy) {
+        boolean keep;
+        synchronized (lock) {
+            keep = !closed && healthy && engine.uses() < maxUses;
+            if (!keep) {
+                created--;
+            }
+        }
+        if (keep) {
+            idle.offer(engine);
+            return;
+        }
+        evictions.increment();
+        closeQuietly(engine);
+    }
+
+    @Override
+    public void destroy() {
+        synchronized (lock) {
+            closed = true;
+        }
+        TesseractEngine engine;
+        while ((engine = idle.poll()) != null) {
+            closeQuietly(engine);
+        }
+    }
+
+    private void closeQuietly(TesseractEngine engine) {
+        try {
+            engine.close();
+        } catch (RuntimeException e) {
+            log.warn("Failed to close Tesseract engine.", e);
+        }
+    }
+}
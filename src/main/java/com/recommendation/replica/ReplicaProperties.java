@@ -0,0 +1,58 @@
+package com.recommendation.replica;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Read replicas for the serving queries. Each URL gets its own pool of {@code poolSize} connections; a replica
+ * serves reads while its replay lag is at most {@code maxLag}, otherwise reads go to the primary. {@code username}
+ * and {@code password} default to the primary's. {@code prepareThreshold} and {@code preparedStatementCacheQueries}
+ * are the PgJDBC server-side prepared statement settings, {@code fetchSize} its default row fetch size.
+ */
+@ConfigurationProperties(prefix = "recommendation.replica")
+public record ReplicaProperties(
+        boolean enabled,
+        List<String> urls,
+        String username,
+        String password,
+        Duration maxLag,
+        Duration lagCheckInterval,
+        Duration lagCheckTimeout,
+        int poolSize,
+        Duration connectionTimeout,
+        int prepareThreshold,
+        int preparedStatementCacheQueries,
+        int fetchSize
+) {
+    public ReplicaProperties {
+        if (urls == null) {
+            urls = List.of();
+        }
+        if (maxLag == null) {
+            maxLag = Duration.ofSeconds(5);
+        }
+        if (lagCheckInterval == null) {
+            lagCheckInterval = Duration.ofSeconds(2);
+        }
+        if (lagCheckTimeout == null) {
+            lagCheckTimeout = Duration.ofSeconds(1);
+        }
+        if (poolSize <= 0) {
+            poolSize = 20;
+        }
+        if (connectionTimeout == null) {
+            connectionTimeout = Duration.ofMillis(500);
+        }
+        if (prepareThreshold <= 0) {
+            prepareThreshold = 1;
+        }
+        if (preparedStatementCacheQueries <= 0) {
+            preparedStatementCacheQueries = 256;
+        }
+        if (fetchSize <= 0) {
+            fetchSize = 100;
+        }
+    }
+}
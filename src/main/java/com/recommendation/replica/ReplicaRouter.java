@@ -0,0 +1,223 @@
+package com.recommendation.replica;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Routes read-only serving queries to read replicas, keeping the primary for writes and batch jobs.
+ * <p>
+ * Every connection request picks the next replica, round robin, whose last lag check succeeded within
+ * {@code maxLag}; if none qualifies, or the chosen replica refuses a connection, the connection comes from the
+ * primary instead, so a lagging or failed replica shifts load back to the primary rather than serving stale
+ * results or errors. Replicas are checked every {@code recommendation.replica.lag-check-interval}, and start out
+ * unused until their first check passes. With replicas disabled, reads use the primary directly.
+ */
+@Component
+@Slf4j
+public class ReplicaRouter implements DisposableBean {
+
+    // A replica that is streaming and has replayed everything it received is current even if the primary has been
+    // idle for a while. Without a streaming WAL receiver (disconnected, or restoring from the archive) received and
+    // replayed positions can match while the primary moves on, so the lag is measured from the last replayed commit.
+    // The status is only visible to roles with pg_read_all_stats; other roles always get the commit-based lag.
+    private static final String LAG_SQL = """
+            select case
+                when not pg_is_in_recovery() then 0
+                when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn()
+                    and exists (select 1 from pg_stat_wal_receiver where status = 'streaming') then 0
+                else extract(epoch from now() - pg_last_xact_replay_timestamp())
+            end
+            """;
+
+    private final ReplicaProperties properties;
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter lagFallbacks;
+    private final Counter errorFallbacks;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ScheduledExecutorService lagChecks;
+
+    public ReplicaRouter(
+            ReplicaProperties properties,
+            DataSource primary,
+            DataSourceProperties primaryProperties,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.primary = primary;
+        if (properties.enabled()) {
+            for (String url : properties.urls()) {
+                Replica replica = new Replica(createPool(url, replicas.size() + 1, primaryProperties, meterRegistry));
+                Gauge.builder("recommendation.replica.lag", replica, r -> r.lagSeconds)
+                        .description("Replay lag of a read replica in seconds; NaN while it cannot be reached")
+                        .baseUnit("seconds")
+                        .tag("replica", replica.name())
+                        .register(meterRegistry);
+                replicas.add(replica);
+            }
+        }
+        this.lagFallbacks = fallbackCounter(meterRegistry, "lag");
+        this.errorFallbacks = fallbackCounter(meterRegistry, "error");
+        DataSource reads = replicas.isEmpty() ? primary : new RoutingDataSource();
+        this.jdbcTemplate = new JdbcTemplate(reads);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(reads));
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        // Lag checks get their own thread so slow scheduled tasks elsewhere cannot keep a lagging replica in service.
+        this.lagChecks = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("replica-lag-check").daemon().factory());
+        if (!replicas.isEmpty()) {
+            long intervalMillis = properties.lagCheckInterval().toMillis();
+            lagChecks.scheduleWithFixedDelay(this::checkLag, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Template for single-statement reads; each statement may run on a different replica.
+     */
+    public JdbcTemplate jdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    /**
+     * Read-only transactions on one replica (or the primary), for reads that set transaction-local settings.
+     */
+    public TransactionTemplate readOnlyTransactionTemplate() {
+        return readOnlyTransactionTemplate;
+    }
+
+    void checkLag() {
+        for (Replica replica : replicas) {
+            try {
+                Double lag = replica.probe.queryForObject(LAG_SQL, Double.class);
+                replica.lagSeconds = lag == null ? Double.NaN : lag;
+            } catch (RuntimeException e) {
+                if (!Double.isNaN(replica.lagSeconds)) {
+                    log.warn("Replica {} failed its lag check; reads fall back to the primary.", replica.name(), e);
+                }
+                replica.lagSeconds = Double.NaN;
+            }
+            boolean healthy = replica.lagSeconds <= properties.maxLag().toMillis() / 1000.0;
+            if (healthy != replica.healthy) {
+                log.info("Replica {} {} (lag {} s).", replica.name(), healthy ? "in service" : "out of service",
+                        replica.lagSeconds);
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        lagChecks.shutdownNow();
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private HikariDataSource createPool(
+            String url,
+            int number,
+            DataSourceProperties primaryProperties,
+            MeterRegistry meterRegistry) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("replica-" + number);
+        config.setJdbcUrl(url);
+        config.setUsername(
+                properties.username() != null ? properties.username() : primaryProperties.determineUsername());
+        config.setPassword(
+                properties.password() != null ? properties.password() : primaryProperties.determinePassword());
+        config.setReadOnly(true);
+        config.setMaximumPoolSize(properties.poolSize());
+        config.setMinimumIdle(properties.poolSize());
+        config.setConnectionTimeout(properties.connectionTimeout().toMillis());
+        // An unreachable replica must not stop startup; reads just stay on the primary until it passes a lag check.
+        config.setInitializationFailTimeout(-1);
+        config.addDataSourceProperty("prepareThreshold", properties.prepareThreshold());
+        config.addDataSourceProperty("preparedStatementCacheQueries", properties.preparedStatementCacheQueries());
+        config.addDataSourceProperty("defaultRowFetchSize", properties.fetchSize());
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new HikariDataSource(config);
+    }
+
+    private static Counter fallbackCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("recommendation.replica.fallbacks")
+                .description("Read connections taken from the primary because no replica could serve them")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private Replica pick() {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private final class Replica {
+        private final HikariDataSource dataSource;
+        private final JdbcTemplate probe;
+        private volatile boolean healthy;
+        private volatile double lagSeconds = Double.NaN;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+            this.probe = new JdbcTemplate(dataSource);
+            this.probe.setQueryTimeout((int) Math.max(1, properties.lagCheckTimeout().toSeconds()));
+        }
+
+        private String name() {
+            return dataSource.getPoolName();
+        }
+    }
+
+    private final class RoutingDataSource extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Replica replica = pick();
+            if (replica == null) {
+                lagFallbacks.increment();
+                return primary.getConnection();
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                // Out of service until the next lag check gets through.
+                replica.healthy = false;
+                errorFallbacks.increment();
+                log.warn("Replica {} refused a connection; using the primary.", replica.name(), e);
+                return primary.getConnection();
+            }
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            throw new SQLFeatureNotSupportedException("Replica credentials come from recommendation.replica.*");
+        }
+    }
+}
@@ -2,13 +2,27 @@ package com.recommendation.repository;
 
 import com.recommendation.dto.RecommendationDto;
 import com.recommendation.dto.SearchResultDto;
+import com.recommendation.embedding.PgVector;
+import com.recommendation.replica.ReplicaRouter;
+import com.recommendation.rerank.RerankCandidate;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.sql.Array;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 
+/**
+ * Serving reads. Every query runs through {@link ReplicaRouter}, so it uses a read replica when one is within its
+ * lag budget and the primary otherwise; nothing here writes.
+ */
 @Repository
 public class RecommendationRepository {
     private static final String SEARCH_SQL = """
@@ -19,6 +33,52 @@ public class RecommendationRepository {
             limit ?
             """;
 
+    private static final String TRIGRAM_SEARCH_SQL = """
+            select i.id, i.title
+            from items i
+            where i.title ilike ?
+            order by similarity(i.title, ?) desc, i.title
+            limit ?
+            """;
+
+    private static final String FULL_TEXT_SEARCH_SQL = """
+            select i.id, i.title
+            from items i, websearch_to_tsquery(?::regconfig, ?) q
+            where i.title_tsv @@ q
+            order by ts_rank_cd(i.title_tsv, q) desc, i.title
+            limit ?
+            """;
+
+    private static final String SEMANTIC_SEARCH_SQL = """
+            select p.id, p.title, pe.embedding <-> ? as distance
+            from page_embedding pe
+            join page p on p.id = pe.page_id
+            order by pe.embedding <-> ?
+            limit ?
+            """;
+
+    private static final String SEMANTIC_CANDIDATES_SQL = """
+            select p.id, p.title, pe.embedding
+            from page_embedding pe
+            join page p on p.id = pe.page_id
+            order by pe.embedding <-> ?
+            limit ?
+            """;
+
+    private static final String PAGE_EMBEDDING_SQL = "select embedding from page_embedding where page_id = ?";
+
+    // The scalar subquery is evaluated once, so the ORDER BY still has a constant operand for the HNSW index.
+    private static final String SIMILAR_PAGES_SQL = """
+            select p.id, p.title, pe.embedding <-> (select embedding from page_embedding where page_id = ?) as distance
+            from page_embedding pe
+            join page p on p.id = pe.page_id
+            where pe.page_id <> ?
+            order by pe.embedding <-> (select embedding from page_embedding where page_id = ?)
+            limit ?
+            """;
+
+    private static final String SET_EF_SEARCH_SQL = "select set_config('hnsw.ef_search', ?, true)";
+
     private static final String RECOMMEND_PAGE_SQL = """
             select i.id, i.title, r.score
             from item_recommendations r
@@ -37,34 +97,185 @@ public class RecommendationRepository {
             limit ?
             """;
 
+    // One scan for many ids: rank each id's rows, then keep as many as that id asked for.
+    private static final String RECOMMEND_PAGES_SQL = """
+            select ranked.owner_id, ranked.id, ranked.title, ranked.score
+            from (
+                select r.item_id as owner_id, i.id, i.title, r.score,
+                       row_number() over (partition by r.item_id order by r.score desc) as rn
+                from item_recommendations r
+                join items i on i.id = r.recommended_item_id
+                where r.item_id = any(?)
+            ) ranked
+            join unnest(?::bigint[], ?::int[]) as wanted(owner_id, max_rows) on wanted.owner_id = ranked.owner_id
+            where ranked.rn <= wanted.max_rows
+            order by ranked.owner_id, ranked.rn
+            """;
+
+    private static final String RECOMMEND_USERS_SQL = """
+            select ranked.owner_id, ranked.id, ranked.title, ranked.score
+            from (
+                select r.user_id as owner_id, i.id, i.title, r.score,
+                       row_number() over (partition by r.user_id order by r.score desc) as rn
+                from user_recommendations r
+                join items i on i.id = r.item_id
+                where r.user_id = any(?)
+            ) ranked
+            join unnest(?::bigint[], ?::int[]) as wanted(owner_id, max_rows) on wanted.owner_id = ranked.owner_id
+            where ranked.rn <= wanted.max_rows
+            order by ranked.owner_id, ranked.rn
+            """;
+
     private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SearchProperties searchProperties;
+    private final Timer searchTimer;
+    private final Timer semanticSearchTimer;
+    private final Timer semanticCandidatesTimer;
+    private final Timer pageEmbeddingTimer;
+    private final Timer similarPagesTimer;
+    private final Timer pageRecommendationsTimer;
+    private final Timer userRecommendationsTimer;
+    private final Timer pageRecommendationsBatchTimer;
+    private final Timer userRecommendationsBatchTimer;
 
-    public RecommendationRepository(JdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
+    public RecommendationRepository(
+            ReplicaRouter replicaRouter,
+            SearchProperties searchProperties,
+            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = replicaRouter.jdbcTemplate();
+        this.transactionTemplate = replicaRouter.readOnlyTransactionTemplate();
+        this.searchProperties = searchProperties;
+        this.searchTimer = queryTimer(meterRegistry, "search");
+        this.semanticSearchTimer = queryTimer(meterRegistry, "semantic_search");
+        this.semanticCandidatesTimer = queryTimer(meterRegistry, "semantic_candidates");
+        this.pageEmbeddingTimer = queryTimer(meterRegistry, "page_embedding");
+        this.similarPagesTimer = queryTimer(meterRegistry, "similar_pages");
+        this.pageRecommendationsTimer = queryTimer(meterRegistry, "page_recommendations");
+        this.userRecommendationsTimer = queryTimer(meterRegistry, "user_recommendations");
+        this.pageRecommendationsBatchTimer = queryTimer(meterRegistry, "page_recommendations_batch");
+        this.userRecommendationsBatchTimer = queryTimer(meterRegistry, "user_recommendations_batch");
     }
 
     public List<SearchResultDto> search(String query, int limit) {
-        String keyword = "%%%s%%".formatted(query);
-        return jdbcTemplate.query(SEARCH_SQL, searchRowMapper(), keyword, limit);
+        return searchTimer.record(() -> switch (searchProperties.mode()) {
+            case ILIKE -> jdbcTemplate.query(SEARCH_SQL, searchRowMapper(), "%%%s%%".formatted(query), limit);
+            case TRIGRAM -> jdbcTemplate.query(
+                    TRIGRAM_SEARCH_SQL, searchRowMapper(), "%%%s%%".formatted(query), query, limit);
+            case FULL_TEXT -> jdbcTemplate.query(
+                    FULL_TEXT_SEARCH_SQL, searchRowMapper(), searchProperties.textSearchConfig(), query, limit);
+        });
+    }
+
+    /**
+     * Top-k pages by L2 distance to {@code queryVector} over the HNSW index on {@code page_embedding}.
+     * {@code efSearch} is applied with {@code SET LOCAL} semantics, so it only affects this transaction.
+     */
+    public List<RecommendationDto> semanticSearch(float[] queryVector, int limit, int efSearch) {
+        PgVector vector = new PgVector(queryVector);
+        return semanticSearchTimer.record(() -> transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForObject(SET_EF_SEARCH_SQL, String.class, String.valueOf(efSearch));
+            return jdbcTemplate.query(SEMANTIC_SEARCH_SQL, distanceRowMapper(), vector, vector, limit);
+        }));
+    }
+
+    /**
+     * Like {@link #semanticSearch} but returns the stored vectors instead of distances, for exact re-ranking.
+     */
+    public List<RerankCandidate> semanticCandidates(float[] queryVector, int count, int efSearch) {
+        PgVector vector = new PgVector(queryVector);
+        return semanticCandidatesTimer.record(() -> transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForObject(SET_EF_SEARCH_SQL, String.class, String.valueOf(efSearch));
+            return jdbcTemplate.query(SEMANTIC_CANDIDATES_SQL, (rs, rowNum) -> new RerankCandidate(
+                    rs.getLong("id"), rs.getString("title"), PgVector.parse(rs.getString("embedding"))),
+                    vector, count);
+        }));
+    }
+
+    /**
+     * Returns the stored embedding of {@code pageId}, or {@code null}.
+     */
+    public float[] pageEmbedding(long pageId) {
+        List<float[]> vectors = pageEmbeddingTimer.record(() -> jdbcTemplate.query(
+                PAGE_EMBEDDING_SQL, (rs, rowNum) -> PgVector.parse(rs.getString("embedding")), pageId));
+        return vectors.isEmpty() ? null : vectors.get(0);
+    }
+
+    /**
+     * Pages nearest to the stored embedding of {@code pageId}; empty if the page has no embedding.
+     */
+    public List<RecommendationDto> similarPages(long pageId, int limit) {
+        return similarPagesTimer.record(() ->
+                jdbcTemplate.query(SIMILAR_PAGES_SQL, distanceRowMapper(), pageId, pageId, pageId, limit));
     }
 
     public List<RecommendationDto> recommendForPage(long itemId, int limit) {
-        return jdbcTemplate.query(RECOMMEND_PAGE_SQL, recommendationRowMapper(), itemId, limit);
+        return pageRecommendationsTimer.record(() ->
+                jdbcTemplate.query(RECOMMEND_PAGE_SQL, recommendationRowMapper(), itemId, limit));
     }
 
     public List<RecommendationDto> recommendForUser(long userId, int limit) {
-        return jdbcTemplate.query(RECOMMEND_USER_SQL, recommendationRowMapper(), userId, limit);
+        return userRecommendationsTimer.record(() ->
+                jdbcTemplate.query(RECOMMEND_USER_SQL, recommendationRowMapper(), userId, limit));
+    }
+
+    /**
+     * Recommendations for many items in one query; {@code limits} maps each item id to its row limit.
+     */
+    public Map<Long, List<RecommendationDto>> recommendForPages(Map<Long, Integer> limits) {
+        return pageRecommendationsBatchTimer.record(() -> recommendForMany(RECOMMEND_PAGES_SQL, limits));
+    }
+
+    /**
+     * Recommendations for many users in one query; {@code limits} maps each user id to its row limit.
+     */
+    public Map<Long, List<RecommendationDto>> recommendForUsers(Map<Long, Integer> limits) {
+        return userRecommendationsBatchTimer.record(() -> recommendForMany(RECOMMEND_USERS_SQL, limits));
+    }
+
+    private Map<Long, List<RecommendationDto>> recommendForMany(String sql, Map<Long, Integer> limits) {
+        Map<Long, List<RecommendationDto>> results = new LinkedHashMap<>();
+        if (limits.isEmpty()) {
+            return results;
+        }
+        Long[] ids = limits.keySet().toArray(Long[]::new);
+        Integer[] maxRows = limits.values().toArray(Integer[]::new);
+        limits.keySet().forEach(id -> results.put(id, new ArrayList<>()));
+        RowMapper<RecommendationDto> rowMapper = recommendationRowMapper();
+        jdbcTemplate.query(sql,
+                ps -> {
+                    Array idArray = ps.getConnection().createArrayOf("bigint", ids);
+                    ps.setArray(1, idArray);
+                    ps.setArray(2, idArray);
+                    ps.setArray(3, ps.getConnection().createArrayOf("integer", maxRows));
+                },
+                rs -> {
+                    results.get(rs.getLong("owner_id")).add(rowMapper.mapRow(rs, 0));
+                });
+        return results;
+    }
+
+    private static Timer queryTimer(MeterRegistry meterRegistry, String query) {
+        return Timer.builder("recommendation.db.query")
+                .description("Latency of recommendation read queries")
+                .tag("query", query)
+                .register(meterRegistry);
     }
 
     private RowMapper<SearchResultDto> searchRowMapper() {
         return (rs, rowNum) -> new SearchResultDto(rs.getLong("id"), rs.getString("title"));
     }
 
+    private RowMapper<RecommendationDto> distanceRowMapper() {
+        return (rs, rowNum) -> new RecommendationDto(
+                rs.getLong("id"), rs.getString("title"), 1.0 / (1.0 + rs.getDouble("distance")));
+    }
+
     private RowMapper<RecommendationDto> recommendationRowMapper() {
         return new RecommendationRowMapper();
     }
 
-    private static class RecommendationRowMapper implements RowMapper<RecommendationDto> {
+    static class RecommendationRowMapper implements RowMapper<RecommendationDto> {
         @Override
         public RecommendationDto mapRow(ResultSet rs, int rowNum) throws SQLException {
             return new RecommendationDto(rs.getLong("id"), rs.getString("title"), rs.getDouble("score"));
@@ -0,0 +1,9 @@
+package com.recommendation.repository;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(SearchProperties.class)
+public class RepositoryConfiguration {
+}
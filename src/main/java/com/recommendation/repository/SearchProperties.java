@@ -0,0 +1,31 @@
+package com.recommendation.repository;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Selects the query behind {@code /search}. {@code TRIGRAM} and {@code FULL_TEXT} need the indexes from
+ * {@code docs/search_indexes.sql}.
+ */
+@ConfigurationProperties(prefix = "recommendation.search")
+public record SearchProperties(
+        Mode mode,
+        String textSearchConfig
+) {
+    public enum Mode {
+        /** Substring match with {@code ilike '%q%'}; sequential scan, ordered by title. */
+        ILIKE,
+        /** Substring match served by a {@code pg_trgm} GIN index, ranked by trigram similarity. */
+        TRIGRAM,
+        /** {@code websearch_to_tsquery} match on a {@code tsvector} GIN index, ranked by {@code ts_rank_cd}. */
+        FULL_TEXT
+    }
+
+    public SearchProperties {
+        if (mode == null) {
+            mode = Mode.ILIKE;
+        }
+        if (textSearchConfig == null || textSearchConfig.isBlank()) {
+            textSearchConfig = "simple";
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.recommendation.rerank;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+final class KernelSelection {
+
+    static final VectorKernels BEST = load();
+
+    private KernelSelection() {
+    }
+
+    private static VectorKernels load() {
+        try {
+            VectorKernels kernels = new SimdVectorKernels();
+            kernels.dot(new float[] {1}, new float[] {1});
+            log.info("Re-ranking uses Vector API kernels ({} float lanes).", SimdVectorKernels.lanes());
+            return kernels;
+        } catch (LinkageError e) {
+            log.info("jdk.incubator.vector is not available; re-ranking uses scalar kernels.");
+            return ScalarVectorKernels.INSTANCE;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.recommendation.rerank;
+
+/**
+ * Business adjustment applied to a candidate's exact similarity before diversification and trimming, e.g. to
+ * favour fresh or promoted pages. Every bean of this type is applied, in {@code @Order}.
+ */
+@FunctionalInterface
+public interface RerankBoost {
+
+    double apply(long pageId, double score);
+}
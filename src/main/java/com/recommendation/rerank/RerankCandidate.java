@@ -0,0 +1,7 @@
+package com.recommendation.rerank;
+
+/**
+ * An approximate nearest-neighbour hit together with its stored vector, as input to {@link Reranker}.
+ */
+public record RerankCandidate(long pageId, String title, float[] vector) {
+}
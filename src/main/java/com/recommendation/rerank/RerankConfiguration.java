@@ -0,0 +1,9 @@
+package com.recommendation.rerank;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(RerankProperties.class)
+public class RerankConfiguration {
+}
@@ -0,0 +1,37 @@
+package com.recommendation.rerank;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Exact re-ranking of vector-search results. {@code candidates} nearest neighbours are fetched from the approximate
+ * index, re-scored with {@code metric}, and trimmed to the requested limit; an {@code mmrLambda} below 1 trades
+ * relevance for diversity with maximal marginal relevance.
+ */
+@ConfigurationProperties(prefix = "recommendation.rerank")
+public record RerankProperties(
+        boolean enabled,
+        int candidates,
+        Metric metric,
+        double mmrLambda
+) {
+    public enum Metric {
+        /** Cosine similarity. */
+        COSINE,
+        /** {@code 1 / (1 + L2 distance)}, the same score as the pgvector {@code <->} path. */
+        L2,
+        /** Raw inner product. */
+        INNER_PRODUCT
+    }
+
+    public RerankProperties {
+        if (candidates <= 0) {
+            candidates = 200;
+        }
+        if (metric == null) {
+            metric = Metric.L2;
+        }
+        if (mmrLambda <= 0 || mmrLambda > 1) {
+            mmrLambda = 1.0;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.recommendation.rerank;
+
+import com.recommendation.dto.RecommendationDto;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Re-scores approximate candidates exactly in the JVM, applies {@link RerankBoost}s and optionally maximal marginal
+ * relevance, then trims to the requested limit. Scoring is one kernel call per candidate; MMR adds one cosine per
+ * candidate and selected result.
+ */
+@Component
+public class Reranker {
+
+    private final RerankProperties properties;
+    private final List<RerankBoost> boosts;
+    private final VectorKernels kernels = VectorKernels.best();
+
+    public Reranker(RerankProperties properties, ObjectProvider<RerankBoost> boosts) {
+        this.properties = properties;
+        this.boosts = boosts.orderedStream().toList();
+    }
+
+    public boolean enabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * Number of approximate candidates to fetch for a result of {@code limit} rows.
+     */
+    public int candidateCount(int limit) {
+        return Math.max(limit, properties.candidates());
+    }
+
+    public List<RecommendationDto> rerank(float[] query, List<RerankCandidate> candidates, int limit) {
+        int count = candidates.size();
+        double[] scores = new double[count];
+        for (int i = 0; i < count; i++) {
+            RerankCandidate candidate = candidates.get(i);
+            double score = score(query, candidate.vector());
+            for (RerankBoost boost : boosts) {
+                score = boost.apply(candidate.pageId(), score);
+            }
+            scores[i] = score;
+        }
+        int[] order = properties.mmrLambda() < 1.0
+                ? diversify(candidates, scores, Math.min(limit, count))
+                : topK(scores, Math.min(limit, count));
+        List<RecommendationDto> results = new ArrayList<>(order.length);
+        for (int i : order) {
+            RerankCandidate candidate = candidates.get(i);
+            results.add(new RecommendationDto(candidate.pageId(), candidate.title(), scores[i]));
+        }
+        return results;
+    }
+
+    private double score(float[] query, float[] vector) {
+        return switch (properties.metric()) {
+            case COSINE -> kernels.cosine(query, vector);
+            case L2 -> 1.0 / (1.0 + Math.sqrt(kernels.squaredDistance(query, vector)));
+            case INNER_PRODUCT -> kernels.dot(query, vector);
+        };
+    }
+
+    private static int[] topK(double[] scores, int k) {
+        Integer[] indexes = new Integer[scores.length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+        Arrays.sort(indexes, Comparator.comparingDouble((Integer i) -> scores[i]).reversed());
+        int[] top = new int[k];
+        for (int i = 0; i < k; i++) {
+            top[i] = indexes[i];
+        }
+        return top;
+    }
+
+    /**
+     * Greedy MMR: each step picks the candidate maximising {@code lambda * score - (1 - lambda) * maxSimilarity},
+     * where {@code maxSimilarity} is its highest cosine similarity to an already picked result.
+     */
+    private int[] diversify(List<RerankCandidate> candidates, double[] scores, int k) {
+        double lambda = properties.mmrLambda();
+        int count = candidates.size();
+        double[] maxSimilarity = new double[count];
+        boolean[] picked = new boolean[count];
+        int[] order = new int[k];
+        for (int step = 0; step < k; step++) {
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < count; i++) {
+                if (picked[i]) {
+                    continue;
+                }
+                double value = lambda * scores[i] - (1 - lambda) * maxSimilarity[i];
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = i;
+                }
+            }
+            picked[best] = true;
+            order[step] = best;
+            float[] chosen = candidates.get(best).vector();
+            for (int i = 0; i < count; i++) {
+                if (!picked[i]) {
+                    maxSimilarity[i] = Math.max(maxSimilarity[i], kernels.cosine(candidates.get(i).vector(), chosen));
+                }
+            }
+        }
+        return order;
+    }
+}
@@ -0,0 +1,28 @@
+package com.recommendation.rerank;
+
+final class ScalarVectorKernels implements VectorKernels {
+
+    static final ScalarVectorKernels INSTANCE = new ScalarVectorKernels();
+
+    private ScalarVectorKernels() {
+    }
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float squaredDistance(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            float diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+}
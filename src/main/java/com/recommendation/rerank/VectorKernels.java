@@ -0,0 +1,29 @@
+package com.recommendation.rerank;
+
+/**
+ * Similarity kernels over equal-length {@code float[]} vectors. {@link #best()} returns the Vector API
+ * implementation when {@code jdk.incubator.vector} is on the module path ({@code --add-modules
+ * jdk.incubator.vector}) and plain loops otherwise.
+ */
+public interface VectorKernels {
+
+    float dot(float[] a, float[] b);
+
+    float squaredDistance(float[] a, float[] b);
+
+    /**
+     * Cosine similarity; 0 if either vector is all zeros.
+     */
+    default float cosine(float[] a, float[] b) {
+        float norms = (float) Math.sqrt((double) dot(a, a) * dot(b, b));
+        return norms == 0 ? 0 : dot(a, b) / norms;
+    }
+
+    static VectorKernels best() {
+        return KernelSelection.BEST;
+    }
+
+    static VectorKernels scalar() {
+        return ScalarVectorKernels.INSTANCE;
+    }
+}
@@ -0,0 +1,24 @@
+package com.recommendation.service;
+
+import com.recommendation.cache.RecommendationCaches;
+import com.recommendation.embedding.EmbeddingClient;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+/**
+ * Embeds semantic-search queries. Kept apart from {@link RecommendationService} so the cache proxy sees the call;
+ * callers pass normalized text, so queries that differ only in case or spacing share one model call.
+ */
+@Service
+public class QueryEmbeddingService {
+    private final EmbeddingClient embeddingClient;
+
+    public QueryEmbeddingService(EmbeddingClient embeddingClient) {
+        this.embeddingClient = embeddingClient;
+    }
+
+    @Cacheable(cacheNames = RecommendationCaches.QUERY_EMBEDDINGS, sync = true)
+    public float[] embed(String normalizedQuery) {
+        return embeddingClient.embed(normalizedQuery);
+    }
+}
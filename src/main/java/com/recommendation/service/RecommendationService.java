@@ -1,28 +1,161 @@
 package com.recommendation.service;
 
+import com.recommendation.ann.PageAnnIndex;
+import com.recommendation.cache.RecommendationCaches;
+import com.recommendation.dto.RecommendationBatchResponse;
 import com.recommendation.dto.RecommendationDto;
 import com.recommendation.dto.SearchResultDto;
 import com.recommendation.repository.RecommendationRepository;
+import com.recommendation.rerank.RerankCandidate;
+import com.recommendation.rerank.Reranker;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.interceptor.SimpleKey;
 import org.springframework.stereotype.Service;
 
 @Service
 public class RecommendationService {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MAX_EF_SEARCH = 1000;
+
     private final RecommendationRepository recommendationRepository;
+    private final QueryEmbeddingService queryEmbeddingService;
+    private final PageAnnIndex annIndex;
+    private final Reranker reranker;
+    private final CacheManager cacheManager;
 
-    public RecommendationService(RecommendationRepository recommendationRepository) {
+    public RecommendationService(
+            RecommendationRepository recommendationRepository,
+            QueryEmbeddingService queryEmbeddingService,
+            PageAnnIndex annIndex,
+            Reranker reranker,
+            CacheManager cacheManager) {
         this.recommendationRepository = recommendationRepository;
+        this.queryEmbeddingService = queryEmbeddingService;
+        this.annIndex = annIndex;
+        this.reranker = reranker;
+        this.cacheManager = cacheManager;
     }
 
     public List<SearchResultDto> search(String query, int limit) {
         return recommendationRepository.search(query, limit);
     }
 
+    /**
+     * Nearest pages to the embedded query. An explicit {@code efSearch} wins over {@code tier}; without either the
+     * {@link SemanticSearchTier#BALANCED} preset is used. ef_search is never below {@code limit}, since HNSW cannot
+     * return more rows than its candidate list holds. Served from the in-process ANN index once it is loaded, and
+     * re-ranked exactly by {@link Reranker} when that is enabled.
+     */
+    public List<RecommendationDto> semanticSearch(String query, int limit, Integer efSearch, SemanticSearchTier tier) {
+        String normalized = WHITESPACE.matcher(query.trim().toLowerCase(Locale.ROOT)).replaceAll(" ");
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        int candidates = efSearch != null
+                ? efSearch
+                : (tier != null ? tier : SemanticSearchTier.BALANCED).efSearch();
+        candidates = Math.min(MAX_EF_SEARCH, Math.max(limit, candidates));
+        float[] queryVector = queryEmbeddingService.embed(normalized);
+        if (reranker.enabled()) {
+            int count = Math.min(MAX_EF_SEARCH, reranker.candidateCount(limit));
+            List<RerankCandidate> rerankCandidates =
+                    vectorCandidates(queryVector, count, Math.max(candidates, count), Long.MIN_VALUE);
+            return reranker.rerank(queryVector, rerankCandidates, limit);
+        }
+        if (annIndex.isReady()) {
+            return annIndex.search(queryVector, limit, candidates);
+        }
+        return recommendationRepository.semanticSearch(queryVector, limit, candidates);
+    }
+
+    /**
+     * Pages whose embeddings are nearest to that of {@code pageId}.
+     */
+    public List<RecommendationDto> similarPages(long pageId, int limit) {
+        if (reranker.enabled()) {
+            float[] vector = annIndex.isReady() ? annIndex.vector(pageId) : null;
+            if (vector == null) {
+                vector = recommendationRepository.pageEmbedding(pageId);
+            }
+            if (vector == null) {
+                return List.of();
+            }
+            int count = Math.min(MAX_EF_SEARCH, reranker.candidateCount(limit) + 1);
+            return reranker.rerank(vector, vectorCandidates(vector, count, count, pageId), limit);
+        }
+        if (annIndex.isReady() && annIndex.contains(pageId)) {
+            return annIndex.similarTo(pageId, limit);
+        }
+        return recommendationRepository.similarPages(pageId, limit);
+    }
+
+    private List<RerankCandidate> vectorCandidates(float[] query, int count, int efSearch, long excludedPageId) {
+        if (annIndex.isReady()) {
+            return annIndex.candidates(query, count, efSearch, excludedPageId);
+        }
+        return recommendationRepository.semanticCandidates(query, count, efSearch).stream()
+                .filter(candidate -> candidate.pageId() != excludedPageId)
+                .toList();
+    }
+
+    // sync = true: concurrent misses on the same (id, limit) wait for a single query.
+    @Cacheable(cacheNames = RecommendationCaches.PAGE_RECOMMENDATIONS, sync = true)
     public List<RecommendationDto> recommendForPage(long itemId, int limit) {
         return recommendationRepository.recommendForPage(itemId, limit);
     }
 
+    @Cacheable(cacheNames = RecommendationCaches.USER_RECOMMENDATIONS, sync = true)
     public List<RecommendationDto> recommendForUser(long userId, int limit) {
         return recommendationRepository.recommendForUser(userId, limit);
     }
+
+    /**
+     * Page and user recommendations for many ids. Entries already in the result caches are served from there, the
+     * remaining ids of each kind are fetched with one query and cached under the same (id, limit) keys that
+     * {@link #recommendForPage} and {@link #recommendForUser} use.
+     */
+    public RecommendationBatchResponse recommendBatch(Map<Long, Integer> pageLimits, Map<Long, Integer> userLimits) {
+        return new RecommendationBatchResponse(
+                cachedOrLoad(RecommendationCaches.PAGE_RECOMMENDATIONS, pageLimits,
+                        recommendationRepository::recommendForPages),
+                cachedOrLoad(RecommendationCaches.USER_RECOMMENDATIONS, userLimits,
+                        recommendationRepository::recommendForUsers));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, List<RecommendationDto>> cachedOrLoad(
+            String cacheName,
+            Map<Long, Integer> limits,
+            Function<Map<Long, Integer>, Map<Long, List<RecommendationDto>>> loader) {
+        Cache cache = cacheManager.getCache(cacheName);
+        Map<Long, List<RecommendationDto>> results = new LinkedHashMap<>();
+        Map<Long, Integer> misses = new LinkedHashMap<>();
+        limits.forEach((id, limit) -> {
+            List<RecommendationDto> cached = cache == null ? null : cache.get(new SimpleKey(id, limit), List.class);
+            if (cached != null) {
+                results.put(id, cached);
+            } else {
+                misses.put(id, limit);
+                results.put(id, List.of());
+            }
+        });
+        if (!misses.isEmpty()) {
+            loader.apply(misses).forEach((id, rows) -> {
+                List<RecommendationDto> immutableRows = List.copyOf(rows);
+                results.put(id, immutableRows);
+                if (cache != null) {
+                    cache.put(new SimpleKey(id, misses.get(id)), immutableRows);
+                }
+            });
+        }
+        return results;
+    }
 }
@@ -0,0 +1,21 @@
+package com.recommendation.service;
+
+/**
+ * Latency presets for {@code /search/semantic}. Each tier is an {@code hnsw.ef_search} value: a larger candidate
+ * list visits more of the graph, which raises recall at the cost of latency.
+ */
+public enum SemanticSearchTier {
+    FAST(40),
+    BALANCED(100),
+    ACCURATE(200);
+
+    private final int efSearch;
+
+    SemanticSearchTier(int efSearch) {
+        this.efSearch = efSearch;
+    }
+
+    public int efSearch() {
+        return efSearch;
+    }
+}
@@ -0,0 +1,132 @@
+package com.recommendation.ann;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 16;
+
+    @Test
+    void recallAgainstBruteForce() {
+        float[][] vectors = randomVectors(2000, 1);
+        HnswIndex index = indexOf(vectors);
+        float[][] queries = randomVectors(50, 2);
+        int k = 10;
+        int hits = 0;
+
+        for (float[] query : queries) {
+            List<Long> exact = IntStream.range(0, vectors.length).boxed()
+                    .sorted(Comparator.comparingDouble(i -> squaredDistance(query, vectors[i])))
+                    .limit(k)
+                    .map(Integer::longValue)
+                    .toList();
+            List<HnswIndex.Neighbor> found = index.search(query, k, 100, Long.MIN_VALUE);
+            hits += (int) found.stream().filter(neighbor -> exact.contains(neighbor.pageId())).count();
+        }
+
+        assertThat(hits / (double) (queries.length * k)).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void replacingAPageTombstonesItsOldNode() {
+        HnswIndex index = indexOf(randomVectors(200, 3));
+        float[] replacement = randomVectors(1, 4)[0];
+        float[] original = index.vector(7);
+
+        assertThat(index.put(7, replacement, false)).isFalse();
+        assertThat(index.put(7, replacement, true)).isTrue();
+        assertThat(index.put(7, replacement, true)).isFalse();
+
+        assertThat(index.size()).isEqualTo(200);
+        assertThat(index.deletedCount()).isEqualTo(1);
+        assertThat(index.vector(7)).containsExactly(replacement);
+        HnswIndex.Neighbor nearestToOriginal = index.search(original, 1, 50, Long.MIN_VALUE).get(0);
+        assertThat(nearestToOriginal.distance()).isGreaterThan(0f);
+        assertThat(index.search(replacement, 1, 50, Long.MIN_VALUE).get(0).pageId()).isEqualTo(7);
+    }
+
+    @Test
+    void removedPagesAreNotReturnedAndCompactionDropsThem() {
+        float[][] vectors = randomVectors(300, 5);
+        HnswIndex index = indexOf(vectors);
+        for (long pageId = 0; pageId < 100; pageId++) {
+            index.remove(pageId);
+        }
+
+        assertThat(index.remove(0)).isFalse();
+        assertThat(index.search(vectors[0], 10, 100, Long.MIN_VALUE))
+                .extracting(HnswIndex.Neighbor::pageId)
+                .allMatch(pageId -> pageId >= 100);
+
+        HnswIndex compacted = index.compacted();
+
+        assertThat(compacted.size()).isEqualTo(200);
+        assertThat(compacted.deletedCount()).isZero();
+        assertThat(compacted.snapshot().size()).isEqualTo(200);
+        assertThat(compacted.contains(0)).isFalse();
+        assertThat(compacted.search(vectors[150], 1, 50, Long.MIN_VALUE).get(0).pageId()).isEqualTo(150);
+    }
+
+    @Test
+    void snapshotRoundTrips(@TempDir Path directory) throws Exception {
+        HnswIndex index = indexOf(randomVectors(500, 6));
+        index.put(3, randomVectors(1, 7)[0], true);
+        index.remove(4);
+        Path file = directory.resolve("ann.snapshot");
+        Instant takenAt = Instant.ofEpochMilli(1_700_000_000_000L);
+
+        AnnSnapshot.write(file, new AnnSnapshot.Contents(index.snapshot(), Map.of(1L, "One"), "model", takenAt));
+        AnnSnapshot.Contents contents = AnnSnapshot.read(file);
+        HnswIndex restored = HnswIndex.restore(contents.graph(), 100);
+
+        assertThat(contents.modelId()).isEqualTo("model");
+        assertThat(contents.takenAt()).isEqualTo(takenAt);
+        assertThat(contents.titles()).containsEntry(1L, "One");
+        assertThat(restored.size()).isEqualTo(index.size());
+        assertThat(restored.deletedCount()).isEqualTo(2);
+        assertThat(restored.contains(4)).isFalse();
+        assertThat(restored.vector(3)).containsExactly(index.vector(3));
+        for (float[] query : randomVectors(20, 8)) {
+            assertThat(restored.search(query, 10, 50, Long.MIN_VALUE))
+                    .isEqualTo(index.search(query, 10, 50, Long.MIN_VALUE));
+        }
+    }
+
+    private static HnswIndex indexOf(float[][] vectors) {
+        HnswIndex index = new HnswIndex(DIMENSION, 16, 100, vectors.length);
+        for (int i = 0; i < vectors.length; i++) {
+            index.put(i, vectors[i], false);
+        }
+        return index;
+    }
+
+    private static float[][] randomVectors(int count, long seed) {
+        Random random = new Random(seed);
+        float[][] vectors = new float[count][DIMENSION];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < DIMENSION; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+        }
+        return vectors;
+    }
+
+    private static double squaredDistance(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            double diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,28 @@
+package com.recommendation.embedding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class EmbeddingBatchesTest {
+
+    @Test
+    void splitsByTextCount() {
+        List<String> texts = List.of("a", "b", "c", "d", "e");
+
+        List<List<String>> batches = EmbeddingBatches.partition(texts, new EmbeddingJobProperties.ModelBatch(2, 0));
+
+        assertThat(batches).containsExactly(List.of("a", "b"), List.of("c", "d"), List.of("e"));
+    }
+
+    @Test
+    void splitsByTokenBudgetAndKeepsOversizedTextsAlone() {
+        String large = "x".repeat(400);
+        List<String> texts = List.of("aaaa", "bbbb", large, "cccc");
+
+        List<List<String>> batches = EmbeddingBatches.partition(texts, new EmbeddingJobProperties.ModelBatch(10, 2));
+
+        assertThat(batches).containsExactly(List.of("aaaa", "bbbb"), List.of(large), List.of("cccc"));
+    }
+}
@@ -0,0 +1,78 @@
+package com.recommendation.embedding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisabledOnOs(OS.WINDOWS)
+class OfflineScriptWorkerTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    // Answers each line with "ok:<line>", except "hang", which never answers, and "exit", which exits with code 3.
+    private static final String SCRIPT = """
+            #!/bin/sh
+            while IFS= read -r line; do
+              case "$line" in
+                hang) exec sleep 60 ;;
+                exit) exit 3 ;;
+                *) echo "ok:$line" ;;
+              esac
+            done
+            """;
+
+    @TempDir
+    Path directory;
+
+    private OfflineScriptWorker worker;
+
+    @BeforeEach
+    void startWorker() throws IOException {
+        Path script = directory.resolve("worker.sh");
+        Files.writeString(script, SCRIPT);
+        assertThat(script.toFile().setExecutable(true)).isTrue();
+        worker = new OfflineScriptWorker("test-worker", List.of(script.toString()));
+    }
+
+    @AfterEach
+    void stopWorker() {
+        worker.destroy();
+    }
+
+    @Test
+    void answersRequestsFromOneLongLivedProcess() {
+        assertThat(worker.call("first", TIMEOUT)).isEqualTo("ok:first");
+        assertThat(worker.call("second", TIMEOUT)).isEqualTo("ok:second");
+    }
+
+    @Test
+    void timesOutAndRestartsOnTheNextCall() {
+        assertThatThrownBy(() -> worker.call("hang", Duration.ofMillis(300)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("timed out after 300ms");
+
+        assertThat(worker.call("after timeout", TIMEOUT)).isEqualTo("ok:after timeout");
+    }
+
+    @Test
+    void reportsAnExitedProcessAndRestartsOnTheNextCall() {
+        assertThat(worker.call("before", TIMEOUT)).isEqualTo("ok:before");
+
+        assertThatThrownBy(() -> worker.call("exit", TIMEOUT))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("exited");
+
+        assertThat(worker.call("after exit", TIMEOUT)).isEqualTo("ok:after exit");
+    }
+}
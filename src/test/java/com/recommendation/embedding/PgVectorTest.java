@@ -0,0 +1,33 @@
+package com.recommendation.embedding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class PgVectorTest {
+
+    @Test
+    void binaryFormatRoundTrips() throws Exception {
+        float[] values = {0.25f, -1.5f, 3.0f};
+        PgVector vector = new PgVector(values);
+        byte[] bytes = new byte[vector.lengthInBytes()];
+
+        vector.toBytes(bytes, 0);
+        PgVector decoded = new PgVector();
+        decoded.setByteValue(bytes, 0);
+
+        assertThat(bytes).hasSize(4 + 3 * Float.BYTES);
+        assertThat(bytes[1]).isEqualTo((byte) 3);
+        assertThat(decoded.toArray()).containsExactly(values);
+    }
+
+    @Test
+    void textFormatRoundTrips() {
+        float[] values = {0.1f, 2.0f, -3.5f};
+
+        String literal = PgVector.toLiteral(values);
+
+        assertThat(literal).isEqualTo("[0.1,2.0,-3.5]");
+        assertThat(PgVector.parse(literal)).containsExactly(values);
+    }
+}
@@ -0,0 +1,31 @@
+package com.recommendation.neighbors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class NeighborPropertiesTest {
+
+    @Test
+    void defaultParallelismLeavesPrimaryConnectionsForServing() {
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        assertThat(withParallelism(0).effectiveParallelism(10)).isEqualTo(Math.min(cores, 8));
+        assertThat(withParallelism(0).effectiveParallelism(2)).isEqualTo(1);
+        assertThat(withParallelism(0).effectiveParallelism(0)).isEqualTo(cores);
+    }
+
+    @Test
+    void rejectsParallelismThatWouldTakeThePool() {
+        assertThat(withParallelism(8).effectiveParallelism(10)).isEqualTo(8);
+        assertThatThrownBy(() -> withParallelism(9).effectiveParallelism(10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("parallelism=9");
+    }
+
+    private static NeighborProperties withParallelism(int parallelism) {
+        return new NeighborProperties(false, null, null, 0, null, parallelism, 0, 0, 0, 0, 0, 0, null, null, null,
+                null);
+    }
+}
@@ -0,0 +1,38 @@
+package com.recommendation.neighbors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class TopKTest {
+
+    @Test
+    void keepsTheSmallestDistancesNearestFirst() {
+        TopK top = new TopK(3);
+        float[] distances = {5f, 1f, 4f, 0.5f, 3f, 2f};
+        for (int i = 0; i < distances.length; i++) {
+            top.offer(distances[i], i);
+        }
+        int[] indexes = new int[3];
+        float[] sorted = new float[3];
+
+        int count = top.drainSorted(indexes, sorted);
+
+        assertThat(count).isEqualTo(3);
+        assertThat(indexes).containsExactly(3, 1, 5);
+        assertThat(sorted).containsExactly(0.5f, 1f, 2f);
+    }
+
+    @Test
+    void returnsFewerThanKWhenFewerWereOffered() {
+        TopK top = new TopK(4);
+        top.offer(2f, 7);
+        top.offer(1f, 9);
+        int[] indexes = new int[4];
+        float[] sorted = new float[4];
+
+        assertThat(top.drainSorted(indexes, sorted)).isEqualTo(2);
+        assertThat(indexes[0]).isEqualTo(9);
+        assertThat(indexes[1]).isEqualTo(7);
+    }
+}
@@ -0,0 +1,27 @@
+package com.recommendation.ocr.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.Test;
+
+class PdfTextExtractorTest {
+
+    private final PdfTextExtractor extractor = new PdfTextExtractor(null, 5, true, 20, 150, 300, 9_000_000);
+
+    @Test
+    void textLayerNeedsEnoughMostlyAlphanumericText() {
+        assertThat(extractor.isUsable("")).isFalse();
+        assertThat(extractor.isUsable("Page 1")).isFalse();
+        assertThat(extractor.isUsable("The quick brown fox jumps over the lazy dog.")).isTrue();
+        assertThat(extractor.isUsable("abcdefghij klmnopqrst ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~")).isFalse();
+    }
+
+    @Test
+    void dpiShrinksForLargePagesWithinBounds() {
+        assertThat(extractor.dpiFor(PDRectangle.A4)).isEqualTo(300f);
+        assertThat(extractor.dpiFor(PDRectangle.A6)).isEqualTo(300f);
+        assertThat(extractor.dpiFor(PDRectangle.A2)).isBetween(150f, 200f);
+        assertThat(extractor.dpiFor(PDRectangle.A0)).isEqualTo(150f);
+    }
+}
@@ -0,0 +1,41 @@
+package com.recommendation.rerank;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class VectorKernelsTest {
+
+    @Test
+    void simdKernelsMatchScalarLoops() {
+        SplittableRandom random = new SplittableRandom(3);
+        // 771 is not a multiple of any vector width, so the scalar tail is exercised too.
+        float[] a = randomVector(random, 771);
+        float[] b = randomVector(random, 771);
+        VectorKernels simd = new SimdVectorKernels();
+        VectorKernels scalar = VectorKernels.scalar();
+
+        assertThat(simd.dot(a, b)).isCloseTo(scalar.dot(a, b), within(1e-3f));
+        assertThat(simd.squaredDistance(a, b)).isCloseTo(scalar.squaredDistance(a, b), within(1e-3f));
+        assertThat(simd.cosine(a, b)).isCloseTo(scalar.cosine(a, b), within(1e-5f));
+    }
+
+    @Test
+    void cosineOfZeroVectorIsZero() {
+        float[] zero = new float[8];
+        float[] other = {1, 2, 3, 4, 5, 6, 7, 8};
+
+        assertThat(VectorKernels.best().cosine(zero, other)).isZero();
+        assertThat(VectorKernels.scalar().cosine(zero, other)).isZero();
+    }
+
+    private static float[] randomVector(SplittableRandom random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextDouble(-1, 1);
+        }
+        return vector;
+    }
+}